@@ -17,14 +17,14 @@ import java.util.UUID;
 @Tag(name = "Profile", description = "Geração e consulta de perfis musicais")
 public class ProfileController {
 
-    private final ProfileService profileService;
+    private final ProfileGenerationService profileGenerationService;
 
     @PostMapping("/generate")
     @Operation(summary = "Gera perfil musical e recomendações de estilo")
     public ResponseEntity<ProfileResponse> generateProfile(
         @Valid @RequestBody GenerateProfileRequest request
     ) {
-        ProfileResponse response = profileService.generateProfile(
+        ProfileResponse response = profileGenerationService.generateProfile(
             request.getUserId(),
             request.getForceRefresh()
         );
@@ -36,7 +36,7 @@ public class ProfileController {
     public ResponseEntity<ProfileResponse> getProfile(
         @PathVariable UUID userId
     ) {
-        ProfileResponse response = profileService.getProfile(userId);
+        ProfileResponse response = profileGenerationService.getProfile(userId);
         return ResponseEntity.ok(response);
     }
 }
\ No newline at end of file
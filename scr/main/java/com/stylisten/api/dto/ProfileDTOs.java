@@ -0,0 +1,44 @@
+package com.stylisten.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.*;
+import lombok.*;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Data @Builder @NoArgsConstructor @AllArgsConstructor
+public class GenerateProfileRequest {
+    @NotNull(message = "userId é obrigatório")
+    private UUID userId;
+
+    @Builder.Default
+    private Boolean forceRefresh = false;
+}
+
+@Data @Builder @NoArgsConstructor @AllArgsConstructor
+public class ProfileResponse {
+    private UUID userId;
+    private Instant generatedAt;
+    private List<GenreScore> topGenres;
+    private List<MatchingStyle> matchingStyles;
+
+    //true quando o perfil saiu do historico ja gravado sem sync recente (Spotify fora/lento)
+    @Builder.Default
+    private Boolean stale = false;
+}
+
+@Data @Builder @NoArgsConstructor @AllArgsConstructor
+public class GenreScore {
+    private String genre;
+    private Double score;
+}
+
+@Data @Builder @NoArgsConstructor @AllArgsConstructor
+public class MatchingStyle {
+    private UUID styleId;
+    private String name;
+    private Double confidence;
+    private String description;
+    private List<String> tags;
+}
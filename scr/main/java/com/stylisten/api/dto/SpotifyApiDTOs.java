@@ -5,6 +5,7 @@ import jakarta.validation.constraints.*;
 import lombok.*;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Data
@@ -37,6 +38,33 @@ class SpotifyArtist {
     private List<String> genres;
 }
 
+@Data
+class SpotifyArtistsResponse {
+    private List<SpotifyArtist> artists;
+}
+
+//forma compacta de um item do recently-played, so com o que o sync grava
+@Data
+@AllArgsConstructor
+class SpotifyPlayRecord {
+    private String trackId;
+    private String trackName;
+    private Instant playedAt;
+    private String artistName;
+    //todos os artistas da faixa, principal primeiro
+    private List<String> artistIds;
+    private Map<String, String> artistNamesById;
+    //preenchido so quando o payload ja traz generos do artista
+    private Map<String, List<String>> artistGenres;
+}
+
+@Data
+@AllArgsConstructor
+class SpotifyPlayRecordPage {
+    private List<SpotifyPlayRecord> items;
+    private String nextUrl;
+}
+
 @Data
 class SpotifyUserProfile {
     private String id;
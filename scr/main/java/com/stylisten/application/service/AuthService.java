@@ -25,6 +25,7 @@ public class AuthService {
     private final SpotifyAccountRepository spotifyAccountRepository;
     private final UserRepository userRepository;
     private final SpotifyClient spotifyClient;
+    private final SpotifyTokenService spotifyTokenService;
 
     @Value("${spring.security.oauth2.client.registration.spotify.client-id}")
     private String clientId;
@@ -85,6 +86,7 @@ public class AuthService {
         account.setTokenExpiresAt(Instant.now().plusSeconds(expiresIn));
 
         account = spotifyAccountRepository.save(account);
+        spotifyTokenService.cacheToken(account);
 
         log.info("Conta Spotify vinculada com sucesso: {}", account.getId());
 
@@ -108,32 +110,7 @@ public class AuthService {
         SpotifyAccount account = spotifyAccountRepository.findByUserId(userId)
             .orElseThrow(() -> new ResourceNotFoundException("Conta Spotify não encontrada"));
 
-        Instant now = Instant.now();
-        Instant expiresAt = account.getTokenExpiresAt();
-
-        //renova token se expirou ou ta perto (5min de margem)
-        if (expiresAt == null || expiresAt.isBefore(now.plusSeconds(300))) {
-            log.info("Renovando token do Spotify para usuário: {}", userId);
-
-            Map<String, Object> tokenResponse = spotifyClient.refreshAccessToken(
-                account.getRefreshToken(),
-                clientId,
-                clientSecret
-            );
-
-            String newAccessToken = (String) tokenResponse.get("access_token");
-            Integer expiresIn = (Integer) tokenResponse.get("expires_in");
-
-            account.setAccessToken(newAccessToken);
-            account.setTokenExpiresAt(now.plusSeconds(expiresIn));
-
-            //atualiza refresh token(se fornecido)
-            if (tokenResponse.containsKey("refresh_token")) {
-                String newRefreshToken = (String) tokenResponse.get("refresh_token");
-                account.setRefreshToken(newRefreshToken);
-            }
-
-            spotifyAccountRepository.save(account);
-        }
+        //renova so se nao houver token valido (cache ou banco)
+        spotifyTokenService.getValidAccessToken(account);
     }
 }
\ No newline at end of file
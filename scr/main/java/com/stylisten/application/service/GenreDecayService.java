@@ -0,0 +1,34 @@
+package com.stylisten.application.service;
+
+import com.stylisten.domain.repository.TrackCacheRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+//a taxa fica gravada em cada contador; se a meia-vida da config mudou, os contadores antigos
+//sao refeitos a partir dos plays em vez de misturar duas taxas no mesmo score
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class GenreDecayService {
+
+    private final TrackCacheRepository trackCacheRepository;
+
+    //assincrono: ate terminar, a leitura usa a taxa gravada em cada linha e continua coerente
+    @Async
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildStaleScores() {
+        long start = System.currentTimeMillis();
+        int users = trackCacheRepository.rebuildStaleGenreDecay();
+
+        if (users > 0) {
+            log.info("Contadores com decaimento de {} usuários reconstruídos com a meia-vida atual em {}ms",
+                users, System.currentTimeMillis() - start);
+        }
+    }
+}
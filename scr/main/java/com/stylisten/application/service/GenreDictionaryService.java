@@ -0,0 +1,224 @@
+package com.stylisten.application.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.stylisten.domain.entity.*;
+import com.stylisten.domain.repository.*;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+//dicionario em memoria das dimensoes artists/genres: ids inteiros no banco, nomes so aqui
+@Slf4j
+@Service
+public class GenreDictionaryService {
+
+    private static final int[] NO_GENRES = new int[0];
+
+    private final ArtistRepository artistRepository;
+    private final GenreRepository genreRepository;
+
+    //poucos milhares de generos: cabe inteiro em memoria
+    private final Map<Integer, String> genreNames = new ConcurrentHashMap<>();
+    private final Map<String, Integer> genreIds = new ConcurrentHashMap<>();
+
+    private final Cache<String, Long> artistIds;
+    private final Cache<Long, int[]> artistGenres;
+
+    public GenreDictionaryService(
+        ArtistRepository artistRepository,
+        GenreRepository genreRepository,
+        @Value("${stylisten.dictionary.artist-cache-size:100000}") long artistCacheSize,
+        @Value("${stylisten.dictionary.no-genres-ttl-seconds:300}") long noGenresTtlSeconds
+    ) {
+        this.artistRepository = artistRepository;
+        this.genreRepository = genreRepository;
+        this.artistIds = Caffeine.newBuilder().maximumSize(artistCacheSize).build();
+        this.artistGenres = Caffeine.newBuilder()
+            .maximumSize(artistCacheSize)
+            .expireAfter(noGenresExpiry(TimeUnit.SECONDS.toNanos(noGenresTtlSeconds)))
+            .build();
+    }
+
+    //registra artistas (e seus generos) e devolve spotify_artist_id -> artists.id
+    public Map<String, Long> registerArtists(
+        Map<String, String> namesBySpotifyId,
+        Map<String, List<String>> genresBySpotifyId
+    ) {
+        Map<String, Long> resolved = new HashMap<>(artistIds.getAllPresent(namesBySpotifyId.keySet()));
+
+        Map<String, String> unknown = new HashMap<>(namesBySpotifyId);
+        unknown.keySet().removeAll(resolved.keySet());
+
+        if (!unknown.isEmpty()) {
+            Map<String, Long> created = artistRepository.upsertAll(unknown);
+            afterCommit(() -> artistIds.putAll(created));
+            resolved.putAll(created);
+        }
+
+        //liga generos de qualquer artista que chegou com generos e ainda nao tem nenhum link:
+        //o primeiro registro pode ter vindo sem generos (feat, falha transitoria no /artists)
+        Map<String, Long> toLink = new HashMap<>();
+        resolved.forEach((spotifyId, artistId) -> {
+            if (!genresBySpotifyId.getOrDefault(spotifyId, Collections.emptyList()).isEmpty()) {
+                toLink.put(spotifyId, artistId);
+            }
+        });
+
+        if (toLink.isEmpty()) {
+            return resolved;
+        }
+
+        Map<Long, int[]> linked = genresOf(toLink.values());
+        toLink.values().removeIf(artistId -> linked.getOrDefault(artistId, NO_GENRES).length > 0);
+
+        if (toLink.isEmpty()) {
+            return resolved;
+        }
+
+        Set<String> genreNamesToResolve = new HashSet<>();
+        for (String spotifyId : toLink.keySet()) {
+            genresBySpotifyId.getOrDefault(spotifyId, Collections.emptyList())
+                .forEach(genre -> genreNamesToResolve.add(normalize(genre)));
+        }
+
+        Map<String, Integer> ids = resolveGenreIds(genreNamesToResolve);
+
+        Map<Long, int[]> links = new HashMap<>();
+        toLink.forEach((spotifyId, artistId) -> {
+            int[] genres = genresBySpotifyId.getOrDefault(spotifyId, Collections.emptyList()).stream()
+                .map(GenreDictionaryService::normalize)
+                .map(ids::get)
+                .filter(Objects::nonNull)
+                .distinct()
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+            if (genres.length > 0) {
+                links.put(artistId, genres);
+            }
+        });
+
+        artistRepository.linkGenres(links);
+        //invalida: o banco pode ter mais generos do que este lote trouxe
+        afterCommit(() -> artistGenres.invalidateAll(links.keySet()));
+
+        return resolved;
+    }
+
+    public Map<Long, int[]> genresOf(Collection<Long> artistIds) {
+        if (artistIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        return artistGenres.getAll(artistIds, missing -> {
+            Map<Long, List<Integer>> loaded = new HashMap<>();
+            for (Object[] row : artistRepository.findGenreIdsByArtistIdIn(toList(missing))) {
+                loaded.computeIfAbsent(((Number) row[0]).longValue(), id -> new ArrayList<>())
+                    .add(((Number) row[1]).intValue());
+            }
+
+            Map<Long, int[]> result = new HashMap<>();
+            for (Long artistId : missing) {
+                List<Integer> genres = loaded.get(artistId);
+                result.put(artistId, genres == null ? NO_GENRES :
+                    genres.stream().mapToInt(Integer::intValue).toArray());
+            }
+            return result;
+        });
+    }
+
+    public String genreName(int genreId) {
+        String name = genreNames.get(genreId);
+        if (name == null) {
+            //genero criado por outro no depois do ultimo load
+            reloadGenres();
+            name = genreNames.get(genreId);
+        }
+        return name;
+    }
+
+    public Map<String, Integer> resolveGenreIds(Collection<String> names) {
+        Map<String, Integer> resolved = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+
+        for (String name : names) {
+            Integer id = genreIds.get(name);
+            if (id != null) {
+                resolved.put(name, id);
+            } else {
+                missing.add(name);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Map<String, Integer> created = genreRepository.upsertAll(missing);
+            resolved.putAll(created);
+            afterCommit(() -> created.forEach((name, id) -> remember(id, name)));
+        }
+
+        return resolved;
+    }
+
+    private synchronized void reloadGenres() {
+        List<Genre> genres = genreRepository.findAll();
+        genres.forEach(genre -> remember(genre.getId(), genre.getName()));
+        log.debug("Dicionário de gêneros recarregado: {} gêneros", genres.size());
+    }
+
+    private void remember(Integer id, String name) {
+        genreNames.put(id, name);
+        genreIds.put(name, id);
+    }
+
+    //so cacheia ids depois do commit: rollback nao pode deixar id inexistente no dicionario
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    //artista sem generos expira logo: o link pode aparecer depois (neste ou em outro no)
+    private static Expiry<Long, int[]> noGenresExpiry(long noGenresTtlNanos) {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(Long artistId, int[] genres, long currentTime) {
+                return genres.length == 0 ? noGenresTtlNanos : Long.MAX_VALUE;
+            }
+
+            @Override
+            public long expireAfterUpdate(Long artistId, int[] genres, long currentTime, long currentDuration) {
+                return expireAfterCreate(artistId, genres, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(Long artistId, int[] genres, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+
+    private static String normalize(String genre) {
+        return genre.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static List<Long> toList(Iterable<? extends Long> ids) {
+        List<Long> list = new ArrayList<>();
+        ids.forEach(list::add);
+        return list;
+    }
+}
@@ -0,0 +1,168 @@
+package com.stylisten.application.service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+//decompoe generos long-tail do Spotify ("brazilian phonk") nos generos canonicos que tem
+//mapeamento de estilo ("phonk"). Imutavel por versao do indice; resolucao memoizada
+final class GenreTaxonomy {
+
+    static final Resolution NO_MATCH = new Resolution(new int[0], new double[0]);
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[\\s\\-]+");
+
+    //o ultimo token costuma ser o genero "pai" (brazilian PHONK, neo MELLOW)
+    private static final double HEAD_BASE_WEIGHT = 0.5;
+    private static final double MODIFIER_BASE_WEIGHT = 0.0;
+
+    private final Map<String, Integer> canonicalIds;
+    private final Map<String, Resolution> aliases;
+    private final TrieNode root = new TrieNode();
+    private final Map<String, Resolution> memo = new ConcurrentHashMap<>();
+
+    private GenreTaxonomy(Map<String, Integer> canonicalIds, Map<String, Resolution> aliases) {
+        this.canonicalIds = canonicalIds;
+        this.aliases = aliases;
+    }
+
+    //aliases curados (genre_aliases) tem prioridade sobre a decomposicao automatica
+    static GenreTaxonomy build(
+        Map<String, Integer> canonicalIds,
+        Map<String, Map<String, Double>> curatedAliases,
+        Collection<String> knownGenres
+    ) {
+        Map<String, Resolution> aliases = new HashMap<>();
+        curatedAliases.forEach((alias, targets) -> {
+            Map<Integer, Double> weights = new LinkedHashMap<>();
+            targets.forEach((canonical, weight) -> {
+                Integer id = canonicalIds.get(normalize(canonical));
+                if (id != null) {
+                    weights.merge(id, weight, Math::max);
+                }
+            });
+            if (!weights.isEmpty()) {
+                aliases.put(normalize(alias), Resolution.of(weights));
+            }
+        });
+
+        GenreTaxonomy taxonomy = new GenreTaxonomy(canonicalIds, aliases);
+        canonicalIds.forEach(taxonomy::insert);
+
+        //aquece com o dicionario inteiro (~6k generos): hot path vira um get no mapa
+        knownGenres.forEach(taxonomy::resolve);
+        return taxonomy;
+    }
+
+    Resolution resolve(String genre) {
+        if (genre == null) {
+            return NO_MATCH;
+        }
+        Resolution cached = memo.get(genre);
+        if (cached != null) {
+            return cached;
+        }
+        return memo.computeIfAbsent(normalize(genre), this::decompose);
+    }
+
+    int memoSize() {
+        return memo.size();
+    }
+
+    private Resolution decompose(String genre) {
+        Resolution alias = aliases.get(genre);
+        if (alias != null) {
+            return alias;
+        }
+
+        Integer exact = canonicalIds.get(genre);
+        if (exact != null) {
+            return new Resolution(new int[]{exact}, new double[]{1.0});
+        }
+
+        String[] tokens = TOKEN_SEPARATOR.split(genre);
+        if (tokens.length < 2) {
+            return NO_MATCH;
+        }
+
+        //todas as sequencias contiguas de tokens que sao genero canonico
+        List<int[]> spans = new ArrayList<>();
+        for (int start = 0; start < tokens.length; start++) {
+            TrieNode node = root;
+            for (int end = start; end < tokens.length; end++) {
+                node = node.children.get(tokens[end]);
+                if (node == null) {
+                    break;
+                }
+                if (node.genreId >= 0) {
+                    spans.add(new int[]{start, end, node.genreId});
+                }
+            }
+        }
+
+        if (spans.isEmpty()) {
+            return NO_MATCH;
+        }
+
+        //mais longo primeiro; empate vai pro mais a direita (cabeca do nome)
+        spans.sort(Comparator.<int[]>comparingInt(span -> span[1] - span[0]).reversed()
+            .thenComparing(Comparator.<int[]>comparingInt(span -> span[1]).reversed()));
+
+        boolean[] covered = new boolean[tokens.length];
+        Map<Integer, Double> weights = new LinkedHashMap<>();
+
+        for (int[] span : spans) {
+            if (overlaps(covered, span[0], span[1])) {
+                continue;
+            }
+            Arrays.fill(covered, span[0], span[1] + 1, true);
+
+            double coverage = (double) (span[1] - span[0] + 1) / tokens.length;
+            boolean head = span[1] == tokens.length - 1;
+            double base = head ? HEAD_BASE_WEIGHT : MODIFIER_BASE_WEIGHT;
+            weights.merge(span[2], base + (1.0 - HEAD_BASE_WEIGHT) * coverage, Math::max);
+        }
+
+        return Resolution.of(weights);
+    }
+
+    private void insert(String genre, int id) {
+        TrieNode node = root;
+        for (String token : TOKEN_SEPARATOR.split(genre)) {
+            node = node.children.computeIfAbsent(token, t -> new TrieNode());
+        }
+        node.genreId = id;
+    }
+
+    private static boolean overlaps(boolean[] covered, int start, int end) {
+        for (int i = start; i <= end; i++) {
+            if (covered[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String normalize(String genre) {
+        return genre.trim().toLowerCase(Locale.ROOT);
+    }
+
+    //generos canonicos (ids do indice) e o peso de cada um pro genero resolvido
+    record Resolution(int[] genreIds, double[] weights) {
+        static Resolution of(Map<Integer, Double> weights) {
+            int[] ids = new int[weights.size()];
+            double[] values = new double[weights.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Double> entry : weights.entrySet()) {
+                ids[i] = entry.getKey();
+                values[i++] = entry.getValue();
+            }
+            return new Resolution(ids, values);
+        }
+    }
+
+    private static final class TrieNode {
+        private final Map<String, TrieNode> children = new HashMap<>();
+        private int genreId = -1;
+    }
+}
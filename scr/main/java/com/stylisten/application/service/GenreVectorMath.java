@@ -0,0 +1,12 @@
+package com.stylisten.application.service;
+
+//kernels do modo cosine; a implementacao SIMD so existe com --add-modules jdk.incubator.vector
+interface GenreVectorMath {
+
+    //out[i] = values[i] * dense[indexes[i]] (gather do vetor do usuario pelos generos do estilo)
+    void gatherMultiply(float[] dense, int[] indexes, float[] values, float[] out);
+
+    float dot(float[] a, float[] b);
+
+    String name();
+}
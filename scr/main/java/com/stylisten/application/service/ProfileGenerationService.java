@@ -0,0 +1,88 @@
+package com.stylisten.application.service;
+
+import com.stylisten.api.dto.*;
+import com.stylisten.infrastructure.concurrency.RedisLock;
+import com.stylisten.infrastructure.concurrency.SingleFlight;
+import com.stylisten.infrastructure.datasource.ReadReplicaRoutingDataSource;
+import com.stylisten.infrastructure.datasource.ReadYourWritesGuard;
+import com.stylisten.infrastructure.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProfileGenerationService {
+
+    private static final String LOCK_PREFIX = "stylisten:profile-generate:";
+
+    private final ProfileService profileService;
+    private final RedisLock redisLock;
+    private final ReadYourWritesGuard readYourWrites;
+    private final SingleFlight<FlightKey, ProfileResponse> inFlight = new SingleFlight<>();
+
+    @Value("${stylisten.profile.generate-lock-seconds:60}")
+    private Long lockSeconds;
+
+    //double-tap ou varios clientes pro mesmo usuario recebem o mesmo ProfileResponse;
+    //forceRefresh entra na chave: pedido forcado nao pega carona numa geracao sem sync
+    public ProfileResponse generateProfile(UUID userId, boolean forceRefresh) {
+        ProfileResponse response = inFlight.execute(new FlightKey(userId, forceRefresh),
+            () -> generateAcrossReplicas(userId, forceRefresh));
+        readYourWrites.markWritten(userId);
+        return response;
+    }
+
+    //replica pode estar atrasada logo apos uma geracao: nesse intervalo le do primario
+    public ProfileResponse getProfile(UUID userId) {
+        return readYourWrites.read(userId, () -> profileService.getProfile(userId));
+    }
+
+    private ProfileResponse generateAcrossReplicas(UUID userId, boolean forceRefresh) {
+        String lockKey = LOCK_PREFIX + userId;
+        Duration lockTtl = Duration.ofSeconds(lockSeconds);
+
+        Optional<String> token = redisLock.tryLock(lockKey, lockTtl);
+
+        if (token.isEmpty()) {
+            //outra replica ja esta gerando: espera terminar e le o que ela gravou
+            log.info("Perfil do usuário {} em geração em outro nó, aguardando", userId);
+            if (redisLock.awaitRelease(lockKey, lockTtl)) {
+                //forceRefresh quer sync proprio: o outro no pode ter gerado sem sync
+                if (!forceRefresh) {
+                    Optional<ProfileResponse> written = readWrittenProfile(userId);
+                    if (written.isPresent()) {
+                        return written.get();
+                    }
+                    log.warn("Geração do perfil do usuário {} em outro nó não gravou resultado, gerando localmente", userId);
+                }
+                return profileService.generateProfile(userId, forceRefresh);
+            }
+            log.warn("Timeout aguardando geração do perfil do usuário {}, gerando localmente", userId);
+            return profileService.generateProfile(userId, forceRefresh);
+        }
+
+        try {
+            return profileService.generateProfile(userId, forceRefresh);
+        } finally {
+            redisLock.unlock(lockKey, token.get());
+        }
+    }
+
+    //dono do lock pode ter falhado antes de gravar: sem perfil nao e 404, e geracao local
+    private Optional<ProfileResponse> readWrittenProfile(UUID userId) {
+        try {
+            return Optional.of(ReadReplicaRoutingDataSource.onPrimary(() -> profileService.getProfile(userId)));
+        } catch (ResourceNotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
+    private record FlightKey(UUID userId, boolean forceRefresh) {
+    }
+}
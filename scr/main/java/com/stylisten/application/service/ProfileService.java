@@ -1,18 +1,19 @@
 package com.stylisten.application.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stylisten.api.dto.*;
 import com.stylisten.domain.entity.*;
 import com.stylisten.domain.repository.*;
+import com.stylisten.infrastructure.datasource.ReadReplicaRoutingDataSource;
 import com.stylisten.infrastructure.exception.ResourceNotFoundException;
-import com.stylisten.infrastructure.spotify.SpotifyClient;
+import com.stylisten.infrastructure.exception.SpotifyApiException;
+import com.stylisten.infrastructure.spotify.SpotifyResilience;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.time.*;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -25,10 +26,12 @@ public class ProfileService {
     private final SpotifyAccountRepository spotifyAccountRepository;
     private final TrackCacheRepository trackCacheRepository;
     private final GenreStatRepository genreStatRepository;
-    private final GenreStyleMappingRepository mappingRepository;
     private final StyleRepository styleRepository;
-    private final SpotifyClient spotifyClient;
-    private final ObjectMapper objectMapper;
+    private final SpotifySyncScheduler spotifySyncScheduler;
+    private final SpotifyResilience spotifyResilience;
+    private final StyleMatchingIndex styleMatchingIndex;
+    private final ObjectProvider<StyleAnnIndex> styleAnnIndex;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${stylisten.profile.history-days:30}")
     private Integer historyDays;
@@ -36,36 +39,68 @@ public class ProfileService {
     @Value("${stylisten.profile.top-genres-limit:5}")
     private Integer topGenresLimit;
 
+    //counts: plays da janela com peso igual; decay: contadores com decaimento exponencial
+    @Value("${stylisten.profile.scoring:counts}")
+    private String scoringMode;
+
+    //sum: soma os pesos dos top generos; cosine: perfil inteiro vs vetor de cada estilo;
+    //ann: mesmo cosseno, mas via HNSW (aproximado) pra catalogos grandes
+    @Value("${stylisten.matching.mode:sum}")
+    private String matchingMode;
+
     @Value("${spotify.cache.ttl-hours:6}")
     private Integer cacheTtlHours;
 
-    @Transactional
+    //sem @Transactional: o sync inline roda antes de abrir a transacao da geracao,
+    //senao a conexao fica presa enquanto espera o Spotify
     public ProfileResponse generateProfile(UUID userId, boolean forceRefresh) {
         log.info("Gerando perfil para usuário: {}", userId);
 
-        SpotifyAccount account = spotifyAccountRepository.findByUserId(userId)
+        //primario: last_sync_at da replica atrasada reagendaria um sync que acabou de rodar
+        SpotifyAccount account = ReadReplicaRoutingDataSource.onPrimary(() ->
+            spotifyAccountRepository.findByUserId(userId))
             .orElseThrow(() -> new ResourceNotFoundException("Conta Spotify não vinculada"));
 
-        //booleano pra atualizar cache
-        boolean needsRefresh = forceRefresh || 
-            shouldRefreshCache(account.getLastSyncAt());
+        //so o forceRefresh sincroniza inline; cache vencido vai pra fila de background
+        boolean stale = shouldRefreshCache(account.getLastSyncAt());
 
-        if (needsRefresh) {
-            syncTracksFromSpotify(account);
+        if (forceRefresh && spotifyResilience.isCallPermitted()) {
+            try {
+                if (spotifySyncScheduler.syncWithinBudgetIfUnclaimed(account.getId())) {
+                    stale = false;
+                } else {
+                    //worker deste ou de outro no com o lease: serve o historico salvo
+                    log.info("Sync da conta {} já em andamento, usando histórico salvo", account.getId());
+                    stale = true;
+                    spotifySyncScheduler.requestSync(account.getId(), account.getLastSyncAt());
+                }
+            } catch (SpotifyApiException e) {
+                //modo degradado: usa o tracks_cache que ja temos e agenda o refresh
+                log.warn("Sync inline falhou para usuário {}, usando histórico salvo: {}",
+                    userId, e.getMessage());
+                stale = true;
+                spotifySyncScheduler.requestSync(account.getId(), account.getLastSyncAt());
+            }
+        } else if (forceRefresh || stale) {
+            stale = true;
+            spotifySyncScheduler.requestSync(account.getId(), account.getLastSyncAt());
         }
 
+        boolean served = stale;
+        return transactionTemplate.execute(status -> buildProfile(userId, served));
+    }
+
+    private ProfileResponse buildProfile(UUID userId, boolean stale) {
         //estatistica de genero (musical)
-        LocalDate periodStart = LocalDate.now().minusDays(historyDays);
-        LocalDate periodEnd = LocalDate.now();
+        //UTC: os dias do user_genre_daily e o period_start nao podem depender do fuso da JVM
+        LocalDate periodEnd = LocalDate.now(ZoneOffset.UTC);
+        LocalDate periodStart = periodEnd.minusDays(historyDays);
         
-        Map<String, Integer> genreCounts = calculateGenreCounts(
-            userId, 
-            periodStart.atStartOfDay(ZoneOffset.UTC).toInstant()
-        );
+        Map<String, Double> genreScores = calculateGenreScores(userId, periodStart);
 
         List<GenreStat> genreStats = normalizeAndSaveGenreStats(
             userId, 
-            genreCounts, 
+            genreScores, 
             periodStart, 
             periodEnd
         );
@@ -76,7 +111,7 @@ public class ProfileService {
             .toList();
 
         //match de estilos 
-        List<MatchingStyle> matchingStyles = findMatchingStyles(topGenres);
+        List<MatchingStyle> matchingStyles = findMatchingStyles(genreStats, topGenres);
 
         return ProfileResponse.builder()
             .userId(userId)
@@ -88,12 +123,13 @@ public class ProfileService {
                     .build())
                 .toList())
             .matchingStyles(matchingStyles)
+            .stale(stale)
             .build();
     }
 
     @Transactional(readOnly = true)
     public ProfileResponse getProfile(UUID userId) {
-        LocalDate periodStart = LocalDate.now().minusDays(historyDays);
+        LocalDate periodStart = LocalDate.now(ZoneOffset.UTC).minusDays(historyDays);
         
         List<GenreStat> stats = genreStatRepository
             .findTopGenresByUserAndPeriod(userId, periodStart);
@@ -106,7 +142,7 @@ public class ProfileService {
             .limit(topGenresLimit)
             .toList();
 
-        List<MatchingStyle> matchingStyles = findMatchingStyles(topGenres);
+        List<MatchingStyle> matchingStyles = findMatchingStyles(stats, topGenres);
 
         return ProfileResponse.builder()
             .userId(userId)
@@ -128,115 +164,50 @@ public class ProfileService {
         return lastSync.isBefore(threshold);
     }
 
-    private void syncTracksFromSpotify(SpotifyAccount account) {
-        log.info("Sincronizando tracks do Spotify para usuário: {}", account.getUser().getId());
-
-        Instant after = Instant.now().minus(Duration.ofDays(historyDays));
-        
-        List<SpotifyPlayHistoryItem> items = spotifyClient.getRecentlyPlayed(
-            account.getAccessToken(), 
-            after, 
-            50
-        );
-
-        List<TrackCache> trackCaches = items.stream()
-            .map(item -> convertToTrackCache(item, account))
-            .toList();
-
-        trackCacheRepository.saveAll(trackCaches);
-        
-        account.setLastSyncAt(Instant.now());
-        spotifyAccountRepository.save(account);
+    private Map<String, Double> calculateGenreScores(UUID userId, LocalDate since) {
+        Map<String, Double> scores = new HashMap<>();
 
-        log.info("Sincronizados {} tracks", trackCaches.size());
-    }
+        if ("decay".equalsIgnoreCase(scoringMode)) {
+            //contadores mantidos na ingestao: leitura nao depende do tamanho do historico
+            Instant sinceInstant = since.atStartOfDay(ZoneOffset.UTC).toInstant();
 
-    private TrackCache convertToTrackCache(
-        SpotifyPlayHistoryItem item, 
-        SpotifyAccount account
-    ) {
-        List<String> genres = new ArrayList<>();
-        
-        //cha revelação de generos dos artistas
-        for (SpotifyArtist artist : item.getTrack().getArtists()) {
-            if (artist.getGenres() != null && !artist.getGenres().isEmpty()) {
-                genres.addAll(artist.getGenres());
-            } else {
-                SpotifyArtist fullArtist = spotifyClient.getArtist(
-                    account.getAccessToken(), 
-                    artist.getId()
-                );
-                if (fullArtist != null && fullArtist.getGenres() != null) {
-                    genres.addAll(fullArtist.getGenres());
-                }
+            for (TrackCacheRepository.GenreScore row :
+                trackCacheRepository.findDecayedGenreScores(userId, sinceInstant)) {
+                scores.put(row.getGenre(), row.getScore());
             }
+            return scores;
         }
 
-        try {
-            return TrackCache.builder()
-                .spotifyTrackId(item.getTrack().getId())
-                .user(account.getUser())
-                .playedAt(Instant.parse(item.getPlayedAt()))
-                .artistName(item.getTrack().getArtists().get(0).getName())
-                .trackName(item.getTrack().getName())
-                .genres(objectMapper.writeValueAsString(genres))
-                .build();
-        } catch (Exception e) {
-            log.error("Erro ao converter track: {}", e.getMessage());
-            throw new RuntimeException(e);
+        for (TrackCacheRepository.GenreCount row : trackCacheRepository.countGenresSince(userId, since)) {
+            scores.put(row.getGenre(), row.getPlays().doubleValue());
         }
-    }
-
-    private Map<String, Integer> calculateGenreCounts(UUID userId, Instant since) {
-        List<TrackCache> tracks = trackCacheRepository
-            .findByUserIdAndPlayedAtBetween(userId, since, Instant.now());
-
-        Map<String, Integer> counts = new HashMap<>();
 
-        for (TrackCache track : tracks) {
-            try {
-                List<String> genres = objectMapper.readValue(
-                    track.getGenres(), 
-                    new TypeReference<List<String>>() {}
-                );
-                
-                for (String genre : genres) {
-                    counts.merge(genre.toLowerCase(), 1, Integer::sum);
-                }
-            } catch (Exception e) {
-                log.warn("Erro ao processar gêneros do track {}: {}", 
-                    track.getId(), e.getMessage());
-            }
-        }
-
-        return counts;
+        return scores;
     }
 
     private List<GenreStat> normalizeAndSaveGenreStats(
         UUID userId,
-        Map<String, Integer> genreCounts,
+        Map<String, Double> genreScores,
         LocalDate periodStart,
         LocalDate periodEnd
     ) {
-        if (genreCounts.isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        int maxCount = genreCounts.values().stream()
-            .max(Integer::compareTo)
-            .orElse(1);
+        double maxScore = genreScores.values().stream()
+            .max(Double::compareTo)
+            .filter(max -> max > 0)
+            .orElse(1.0);
 
         List<GenreStat> stats = new ArrayList<>();
         User user = new User();
         user.setId(userId);
 
-        for (Map.Entry<String, Integer> entry : genreCounts.entrySet()) {
-            double normalizedScore = 10.0 * entry.getValue() / maxCount;
+        for (Map.Entry<String, Double> entry : genreScores.entrySet()) {
+            double normalizedScore = 10.0 * entry.getValue() / maxScore;
             
             GenreStat stat = GenreStat.builder()
                 .user(user)
                 .genreName(entry.getKey())
-                .rawCount(entry.getValue())
+                //no modo decay e o numero "efetivo" de plays, arredondado
+                .rawCount((int) Math.round(entry.getValue()))
                 .normalizedScore(normalizedScore)
                 .periodStart(periodStart)
                 .periodEnd(periodEnd)
@@ -245,46 +216,31 @@ public class ProfileService {
             stats.add(stat);
         }
 
-        return genreStatRepository.saveAll(stats);
+        //upsert multi-linha: regerar o mesmo periodo nao duplica linhas
+        //periodo sem plays tambem passa: as stats antigas dele precisam sair
+        genreStatRepository.upsertAll(userId, periodStart, periodEnd, stats);
+        return stats;
     }
 
-    private List<MatchingStyle> findMatchingStyles(List<GenreStat> topGenres) {
-        List<String> genreNames = topGenres.stream()
-            .map(GenreStat::getGenreName)
-            .toList();
-
-        List<GenreStyleMapping> mappings = mappingRepository.findByGenreNameIn(genreNames);
-
-        Map<UUID, Double> styleScores = new HashMap<>();
-        Map<UUID, Style> styleMap = new HashMap<>();
+    private List<MatchingStyle> findMatchingStyles(List<GenreStat> allGenres, List<GenreStat> topGenres) {
+        if (!"sum".equalsIgnoreCase(matchingMode)) {
+            Map<String, Double> profile = new HashMap<>();
+            for (GenreStat stat : allGenres) {
+                profile.merge(stat.getGenreName(), stat.getNormalizedScore(), Double::sum);
+            }
 
-        for (GenreStyleMapping mapping : mappings) {
-            UUID styleId = mapping.getStyle().getId();
-            styleMap.put(styleId, mapping.getStyle());
-            
-            double score = styleScores.getOrDefault(styleId, 0.0);
-            score += mapping.getWeight();
-            styleScores.put(styleId, score);
+            StyleAnnIndex ann = styleAnnIndex.getIfAvailable();
+            if (ann != null && ann.isReady()) {
+                return ann.topMatches(profile, 5);
+            }
+            return styleMatchingIndex.topMatchesByCosine(profile, 5);
         }
 
-        double maxScore = styleScores.values().stream()
-            .max(Double::compareTo)
-            .orElse(1.0);
-
-        return styleScores.entrySet().stream()
-            .sorted(Map.Entry.<UUID, Double>comparingByValue().reversed())
-            .limit(5)
-            .map(entry -> {
-                Style style = styleMap.get(entry.getKey());
-                return MatchingStyle.builder()
-                    .styleId(style.getId())
-                    .name(style.getName())
-                    .confidence(entry.getValue() / maxScore)
-                    .description(style.getDescription())
-                    .tags(style.getTags() != null ? 
-                        Arrays.asList(style.getTags()) : Collections.emptyList())
-                    .build();
-            })
+        List<String> genreNames = topGenres.stream()
+            .map(GenreStat::getGenreName)
             .toList();
+
+        //indice em memoria, sem consulta ao banco por perfil
+        return styleMatchingIndex.topMatches(genreNames, 5);
     }
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.stylisten.application.service;
+
+import com.stylisten.domain.repository.GenreStatRepository;
+import com.stylisten.domain.repository.TrackCachePartitionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RetentionService {
+
+    private final GenreStatRepository genreStatRepository;
+    private final TrackCachePartitionRepository partitionRepository;
+
+    @Value("${stylisten.retention.genre-stats-days:90}")
+    private Integer genreStatsDays;
+
+    @Value("${stylisten.retention.tracks-months:13}")
+    private Integer tracksMonths;
+
+    @Value("${stylisten.retention.partitions-ahead:3}")
+    private Integer partitionsAhead;
+
+    @Value("${stylisten.retention.batch-size:1000}")
+    private Integer batchSize;
+
+    @Value("${stylisten.retention.batch-delay-ms:100}")
+    private Long batchDelayMs;
+
+    @Scheduled(fixedDelayString = "${stylisten.retention.interval-ms:3600000}")
+    public void purgeOldGenreStats() {
+        LocalDate before = LocalDate.now(ZoneOffset.UTC).minusDays(genreStatsDays);
+        int deleted = 0;
+
+        //lotes pequenos em transacoes separadas: nada de DELETE gigante segurando locks
+        int batch;
+        do {
+            batch = genreStatRepository.deleteBatchByPeriodStartBefore(before, batchSize);
+            deleted += batch;
+
+            if (batch == batchSize) {
+                pauseBetweenBatches();
+            }
+        } while (batch == batchSize && !Thread.currentThread().isInterrupted());
+
+        if (deleted > 0) {
+            log.info("Removidas {} genre_stats com period_start anterior a {}", deleted, before);
+        }
+    }
+
+    //cria particoes futuras e descarta meses inteiros em vez de DELETE linha a linha
+    @Scheduled(fixedDelayString = "${stylisten.retention.interval-ms:3600000}")
+    public void maintainTrackPartitions() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+
+        for (int i = 0; i <= partitionsAhead; i++) {
+            try {
+                partitionRepository.createPartition(current.plusMonths(i));
+            } catch (Exception e) {
+                //ex.: lock_timeout com leitura longa na frente; o proximo ciclo tenta de novo
+                log.error("Erro ao criar partição de tracks_cache para {}: {}",
+                    current.plusMonths(i), e.getMessage());
+            }
+        }
+
+        YearMonth oldestKept = current.minusMonths(tracksMonths - 1L);
+
+        //inclui tabelas que ficaram soltas: nao aparecem mais como particao, mas ocupam disco
+        List<String> names = new ArrayList<>(partitionRepository.findPartitionNames());
+        names.addAll(partitionRepository.findDetachedPartitionNames());
+
+        for (String name : names) {
+            TrackCachePartitionRepository.monthOf(name)
+                .filter(month -> month.isBefore(oldestKept))
+                .ifPresent(month -> {
+                    try {
+                        partitionRepository.dropPartition(month);
+                        log.info("Partição {} de tracks_cache removida", name);
+                    } catch (Exception e) {
+                        //lock_timeout estourado ou outra replica removeu primeiro: tenta no proximo ciclo
+                        log.warn("Erro ao remover partição {}: {}", name, e.getMessage());
+                    }
+                });
+        }
+    }
+
+    private void pauseBetweenBatches() {
+        try {
+            Thread.sleep(batchDelayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.stylisten.application.service;
+
+//fallback quando o modulo jdk.incubator.vector nao esta carregado
+final class ScalarGenreVectorMath implements GenreVectorMath {
+
+    @Override
+    public void gatherMultiply(float[] dense, int[] indexes, float[] values, float[] out) {
+        for (int i = 0; i < values.length; i++) {
+            out[i] = values[i] * dense[indexes[i]];
+        }
+    }
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        float sum = 0f;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
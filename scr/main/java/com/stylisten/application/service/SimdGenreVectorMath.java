@@ -0,0 +1,44 @@
+package com.stylisten.application.service;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+//carregada por reflexao: referenciar direto quebraria o boot sem o modulo incubator
+final class SimdGenreVectorMath implements GenreVectorMath {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public void gatherMultiply(float[] dense, int[] indexes, float[] values, float[] out) {
+        int i = 0;
+        int upper = SPECIES.loopBound(values.length);
+        for (; i < upper; i += SPECIES.length()) {
+            FloatVector user = FloatVector.fromArray(SPECIES, dense, 0, indexes, i);
+            FloatVector.fromArray(SPECIES, values, i).mul(user).intoArray(out, i);
+        }
+        for (; i < values.length; i++) {
+            out[i] = values[i] * dense[indexes[i]];
+        }
+    }
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0;
+        int upper = SPECIES.loopBound(a.length);
+        for (; i < upper; i += SPECIES.length()) {
+            acc = FloatVector.fromArray(SPECIES, a, i).fma(FloatVector.fromArray(SPECIES, b, i), acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public String name() {
+        return "simd-" + SPECIES.vectorBitSize();
+    }
+}
@@ -0,0 +1,205 @@
+package com.stylisten.application.service;
+
+import com.stylisten.domain.entity.SpotifyAccount;
+import com.stylisten.domain.repository.SpotifyAccountRepository;
+import com.stylisten.infrastructure.datasource.ReadReplicaRoutingDataSource;
+import com.stylisten.infrastructure.spotify.SpotifyRateLimiter;
+import com.stylisten.infrastructure.spotify.SpotifyResilience;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Component
+public class SpotifySyncScheduler {
+
+    private final SpotifyAccountRepository spotifyAccountRepository;
+    private final SpotifySyncService spotifySyncService;
+    private final SpotifyResilience spotifyResilience;
+
+    private final PriorityBlockingQueue<SyncTask> queue = new PriorityBlockingQueue<>();
+    private final Set<UUID> queued = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final ExecutorService workers;
+    private final String nodeId;
+
+    private final Duration cacheTtl;
+    private final Duration leaseDuration;
+    private final int batchSize;
+
+    public SpotifySyncScheduler(
+        SpotifyAccountRepository spotifyAccountRepository,
+        SpotifySyncService spotifySyncService,
+        SpotifyResilience spotifyResilience,
+        @Value("${spotify.cache.ttl-hours:6}") int cacheTtlHours,
+        @Value("${stylisten.sync.workers:8}") int workerCount,
+        @Value("${stylisten.sync.batch-size:100}") int batchSize,
+        @Value("${stylisten.sync.lease-minutes:10}") int leaseMinutes,
+        @Value("${stylisten.sync.node-id:}") String nodeId
+    ) {
+        this.spotifyAccountRepository = spotifyAccountRepository;
+        this.spotifySyncService = spotifySyncService;
+        this.spotifyResilience = spotifyResilience;
+        this.cacheTtl = Duration.ofHours(cacheTtlHours);
+        this.leaseDuration = Duration.ofMinutes(leaseMinutes);
+        this.batchSize = batchSize;
+        this.permits = new Semaphore(workerCount);
+        this.workers = createWorkers(workerCount);
+        this.nodeId = nodeId.isBlank() ?
+            ManagementFactory.getRuntimeMXBean().getName() : nodeId;
+    }
+
+    @Scheduled(fixedDelayString = "${stylisten.sync.poll-interval-ms:60000}")
+    public void enqueueStaleAccounts() {
+        //Spotify fora: nao adianta disparar sync, tenta no proximo ciclo
+        if (!spotifyResilience.isCallPermitted()) {
+            log.debug("Circuit breaker do Spotify aberto, sync em background adiado");
+            return;
+        }
+
+        Instant now = Instant.now();
+
+        //primario: com lag, contas recem-sincronizadas (ou com lease) voltariam pra fila
+        List<SpotifyAccount> stale = ReadReplicaRoutingDataSource.onPrimary(() ->
+            spotifyAccountRepository.findStaleForSync(
+                now.minus(cacheTtl),
+                now,
+                PageRequest.of(0, batchSize)
+            ));
+
+        for (SpotifyAccount account : stale) {
+            enqueue(account.getId(), account.getLastSyncAt());
+        }
+
+        if (!stale.isEmpty()) {
+            log.debug("{} contas Spotify na fila de sync", queue.size());
+        }
+
+        drain();
+    }
+
+    public void requestSync(UUID accountId, Instant lastSyncAt) {
+        enqueue(accountId, lastSyncAt);
+        drain();
+    }
+
+    //sync inline (forceRefresh) disputa o mesmo lease dos workers: false = conta ja esta sendo
+    //sincronizada neste ou em outro no, e dois syncs nao podem correr no mesmo cursor.
+    //dono proprio por chamada: com o nodeId o claim passaria por cima do worker deste no
+    public boolean syncWithinBudgetIfUnclaimed(UUID accountId) {
+        String owner = nodeId + "/inline-" + UUID.randomUUID();
+        if (!claimLease(accountId, owner)) {
+            return false;
+        }
+
+        try {
+            spotifySyncService.syncAccountWithinBudget(accountId);
+            return true;
+        } finally {
+            spotifyAccountRepository.releaseSyncLease(accountId, owner);
+        }
+    }
+
+    private void enqueue(UUID accountId, Instant lastSyncAt) {
+        //mesma conta nao entra duas vezes na fila
+        if (queued.add(accountId)) {
+            queue.offer(new SyncTask(accountId, lastSyncAt != null ? lastSyncAt : Instant.EPOCH));
+        }
+    }
+
+    private void drain() {
+        while (permits.tryAcquire()) {
+            SyncTask task = queue.poll();
+            if (task == null) {
+                permits.release();
+                return;
+            }
+
+            try {
+                workers.execute(() -> {
+                    try {
+                        run(task);
+                    } finally {
+                        permits.release();
+                        drain();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                queued.remove(task.accountId());
+                return;
+            }
+        }
+    }
+
+    private void run(SyncTask task) {
+        queued.remove(task.accountId());
+
+        if (!claimLease(task.accountId(), nodeId)) {
+            log.debug("Conta {} já está sendo sincronizada por outro nó", task.accountId());
+            return;
+        }
+
+        try {
+            SpotifyRateLimiter.runWithPriority(SpotifyRateLimiter.Priority.BACKGROUND, () -> {
+                spotifySyncService.syncAccount(task.accountId());
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Erro no sync em background da conta {}: {}", task.accountId(), e.getMessage());
+        } finally {
+            spotifyAccountRepository.releaseSyncLease(task.accountId(), nodeId);
+        }
+    }
+
+    //lease no banco evita que duas replicas sincronizem a mesma conta
+    private boolean claimLease(UUID accountId, String owner) {
+        Instant now = Instant.now();
+        return spotifyAccountRepository.claimSyncLease(
+            accountId,
+            owner,
+            now,
+            now.plus(leaseDuration)
+        ) > 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    private static ExecutorService createWorkers(int workerCount) {
+        try {
+            //java 21+: virtual threads, o semaforo ja limita a concorrencia
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor")
+                .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(workerCount, runnable -> {
+                Thread thread = new Thread(runnable, "spotify-sync-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    //mais tempo sem sync = maior prioridade
+    private record SyncTask(UUID accountId, Instant lastSyncAt) implements Comparable<SyncTask> {
+        @Override
+        public int compareTo(SyncTask other) {
+            return lastSyncAt.compareTo(other.lastSyncAt);
+        }
+    }
+}
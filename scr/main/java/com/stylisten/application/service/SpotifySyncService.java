@@ -0,0 +1,281 @@
+package com.stylisten.application.service;
+
+import com.stylisten.api.dto.*;
+import com.stylisten.domain.entity.*;
+import com.stylisten.domain.repository.*;
+import com.stylisten.infrastructure.cache.ArtistGenreCache;
+import com.stylisten.infrastructure.datasource.ReadReplicaRoutingDataSource;
+import com.stylisten.infrastructure.exception.ResourceNotFoundException;
+import com.stylisten.infrastructure.exception.SpotifyApiException;
+import com.stylisten.infrastructure.spotify.SpotifyClient;
+import com.stylisten.infrastructure.spotify.SpotifyRateLimiter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SpotifySyncService {
+
+    //tamanho de pagina do recently-played e limite do /artists?ids
+    private static final int IMPORT_PAGE_SIZE = 50;
+
+    private final SpotifyAccountRepository spotifyAccountRepository;
+    private final TrackCacheRepository trackCacheRepository;
+    private final SpotifyClient spotifyClient;
+    private final SpotifyTokenService spotifyTokenService;
+    private final ArtistGenreCache artistGenreCache;
+    private final GenreDictionaryService genreDictionaryService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${stylisten.profile.history-days:30}")
+    private Integer historyDays;
+
+    //plays por COPY no backfill; o sync normal nao usa, grava cada pagina assim que chega
+    @Value("${stylisten.bulk-load.import-batch-size:5000}")
+    private Integer importBatchSize;
+
+    //orcamento do sync inline inteiro (todas as paginas), nao de cada chamada
+    @Value("${spotify.api.sync-budget-ms:${spotify.api.latency-budget-ms:5000}}")
+    private Long syncBudgetMs;
+
+    //sem transacao em volta: cada pagina commita sozinha, nenhuma conexao fica presa
+    //esperando o Spotify. quem chama nao pode estar dentro de transacao
+    public void syncAccount(UUID accountId) {
+        sync(accountId, null);
+    }
+
+    //sync no caminho do request: estourou o orcamento, falha com SpotifyApiException
+    public void syncAccountWithinBudget(UUID accountId) {
+        sync(accountId, Duration.ofMillis(syncBudgetMs));
+    }
+
+    private void sync(UUID accountId, Duration budget) {
+        //primario: cursor e tokens da replica podem estar atrasados
+        SpotifyAccount account = ReadReplicaRoutingDataSource.onPrimary(() ->
+            spotifyAccountRepository.findById(accountId))
+            .orElseThrow(() -> new ResourceNotFoundException("Conta Spotify não encontrada"));
+
+        syncTracksFromSpotify(account, budget);
+    }
+
+    private void syncTracksFromSpotify(SpotifyAccount account, Duration budget) {
+        log.info("Sincronizando tracks do Spotify para usuário: {}", account.getUser().getId());
+
+        //so pede plays mais novos que o ultimo gravado, limitado a janela de historico
+        Instant windowStart = Instant.now().minus(Duration.ofDays(historyDays));
+        Instant after = account.getLastPlayedAt() != null &&
+            account.getLastPlayedAt().isAfter(windowStart) ?
+            account.getLastPlayedAt() : windowStart;
+
+        int received = 0;
+        int inserted = 0;
+        Instant latestPlayedAt = account.getLastPlayedAt();
+
+        String accessToken = spotifyTokenService.getValidAccessToken(account);
+
+        Flux<ResolvedPage> resolved = fetchResolvedPages(accessToken, after);
+        if (budget != null) {
+            resolved = withinBudget(resolved, budget);
+        }
+
+        //cada pagina e convertida e gravada assim que chega; no maximo uma pagina em buffer
+        Iterable<ResolvedPage> pages = resolved
+            .contextWrite(SpotifyRateLimiter.currentPriorityContext())
+            .toIterable(1);
+
+        for (ResolvedPage page : pages) {
+            //artistas + pagina inteira num unico INSERT multi-linha, na mesma transacao curta
+            WrittenPage written = transactionTemplate.execute(status -> {
+                List<TrackCache> converted = convertToTrackCache(page, account);
+                return new WrittenPage(converted, trackCacheRepository.insertAllIgnoringDuplicates(
+                    account.getUser().getId(), converted));
+            });
+            List<TrackCache> tracks = written.tracks();
+            inserted += written.inserted();
+
+            for (TrackCache track : tracks) {
+                if (latestPlayedAt == null || track.getPlayedAt().isAfter(latestPlayedAt)) {
+                    latestPlayedAt = track.getPlayedAt();
+                }
+            }
+            received += tracks.size();
+        }
+
+        //update direto pra nao sobrescrever tokens renovados em paralelo
+        Instant syncedAt = Instant.now();
+        spotifyAccountRepository.updateSyncCursor(account.getId(), latestPlayedAt, syncedAt);
+        account.setLastPlayedAt(latestPlayedAt);
+        account.setLastSyncAt(syncedAt);
+
+        log.info("Sincronizados {} tracks novos ({} recebidos)", inserted, received);
+    }
+
+    //backfill de historico (plays ja decodificados, ex.: export do usuario): vai por COPY em lotes
+    //de import-batch-size. nao mexe no cursor; plays que o sync ja gravou caem no ON CONFLICT
+    public int importHistory(UUID accountId, Stream<SpotifyPlayRecord> plays) {
+        SpotifyAccount account = ReadReplicaRoutingDataSource.onPrimary(() ->
+            spotifyAccountRepository.findById(accountId))
+            .orElseThrow(() -> new ResourceNotFoundException("Conta Spotify não encontrada"));
+        UUID userId = account.getUser().getId();
+
+        log.info("Importando histórico de plays para usuário: {}", userId);
+
+        //mesma janela do sync: plays mais antigos sairiam na proxima retencao
+        Instant windowStart = Instant.now().minus(Duration.ofDays(historyDays));
+        String accessToken = spotifyTokenService.getValidAccessToken(account);
+
+        int received = 0;
+        int inserted = 0;
+        List<SpotifyPlayRecord> page = new ArrayList<>(IMPORT_PAGE_SIZE);
+        List<TrackCache> batch = new ArrayList<>(importBatchSize);
+
+        Iterator<SpotifyPlayRecord> iterator = plays
+            .filter(play -> play.getPlayedAt().isAfter(windowStart))
+            .iterator();
+
+        while (iterator.hasNext()) {
+            page.add(iterator.next());
+            if (page.size() < IMPORT_PAGE_SIZE && iterator.hasNext()) {
+                continue;
+            }
+
+            //generos resolvidos fora de transacao; so o registro dos artistas segura conexao
+            ResolvedPage resolved = new ResolvedPage(List.copyOf(page), resolveArtistGenres(page, accessToken)
+                .contextWrite(SpotifyRateLimiter.currentPriorityContext())
+                .block());
+            batch.addAll(transactionTemplate.execute(status -> convertToTrackCache(resolved, account)));
+            page.clear();
+
+            if (batch.size() >= importBatchSize || !iterator.hasNext()) {
+                Integer written = transactionTemplate.execute(status ->
+                    trackCacheRepository.bulkImport(userId, batch));
+                received += batch.size();
+                inserted += written != null ? written : 0;
+                batch.clear();
+            }
+        }
+
+        log.info("Importados {} plays novos ({} recebidos)", inserted, received);
+        return inserted;
+    }
+
+    //prazo unico compartilhado: o timeout de cada pagina espera o mesmo delay, que nao reinicia
+    private static Flux<ResolvedPage> withinBudget(Flux<ResolvedPage> pages, Duration budget) {
+        Mono<Long> deadline = Mono.delay(budget).cache();
+        return pages
+            .timeout(deadline, page -> deadline)
+            .onErrorMap(TimeoutException.class, e ->
+                new SpotifyApiException("Sync excedeu o orçamento de latência", e));
+    }
+
+    private Flux<ResolvedPage> fetchResolvedPages(String accessToken, Instant after) {
+        return spotifyClient.streamRecentlyPlayedPages(accessToken, after, 50)
+            .concatMap(items -> resolveArtistGenres(items, accessToken)
+                .map(artistGenres -> new ResolvedPage(items, artistGenres)), 1);
+    }
+
+    private Mono<Map<String, List<String>>> resolveArtistGenres(
+        List<SpotifyPlayRecord> items,
+        String accessToken
+    ) {
+        Map<String, List<String>> artistGenres = new HashMap<>();
+        Set<String> missingIds = new LinkedHashSet<>();
+
+        //recently-played traz artistas simplificados, quase sempre sem generos
+        for (SpotifyPlayRecord item : items) {
+            artistGenres.putAll(item.getArtistGenres());
+            missingIds.addAll(item.getArtistIds());
+        }
+
+        missingIds.removeAll(artistGenres.keySet());
+
+        if (missingIds.isEmpty()) {
+            return Mono.just(artistGenres);
+        }
+
+        //generos de artista sao globais, entao o cache vale entre usuarios
+        return Mono.fromCallable(() -> artistGenreCache.getAll(missingIds))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(cached -> {
+                artistGenres.putAll(cached);
+                missingIds.removeAll(cached.keySet());
+
+                if (missingIds.isEmpty()) {
+                    return Mono.just(artistGenres);
+                }
+
+                return spotifyClient.getArtistsReactive(accessToken, missingIds)
+                    .collectMap(
+                        SpotifyArtist::getId,
+                        artist -> artist.getGenres() != null ?
+                            artist.getGenres() : Collections.<String>emptyList()
+                    )
+                    .flatMap(fetched -> Mono.fromRunnable(() -> artistGenreCache.putAll(fetched))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .then(Mono.fromSupplier(() -> {
+                            artistGenres.putAll(fetched);
+                            log.debug("Resolvidos generos de {} artistas em lote", fetched.size());
+                            return artistGenres;
+                        })));
+            })
+            .doOnSuccess(resolved -> {
+                ArtistGenreCache.Stats stats = artistGenreCache.getStats();
+                log.debug("Cache de gêneros: hitRate={}, localHits={}, redisHits={}, misses={}",
+                    stats.getHitRate(), stats.getLocalHits(), stats.getRedisHits(), stats.getMisses());
+            });
+    }
+
+    private List<TrackCache> convertToTrackCache(ResolvedPage page, SpotifyAccount account) {
+        //todos os artistas da faixa viram dimensao; os generos deles vem de artist_genres
+        Map<String, String> artists = new HashMap<>();
+        for (SpotifyPlayRecord item : page.items()) {
+            item.getArtistNamesById().forEach(artists::putIfAbsent);
+        }
+
+        Map<String, Long> artistIds = genreDictionaryService.registerArtists(
+            artists,
+            page.artistGenres()
+        );
+
+        return page.items().stream()
+            .map(item -> {
+                Long artistId = item.getArtistIds().isEmpty() ?
+                    null : artistIds.get(item.getArtistIds().get(0));
+
+                Long[] featured = item.getArtistIds().stream()
+                    .skip(1)
+                    .map(artistIds::get)
+                    .filter(Objects::nonNull)
+                    .filter(id -> !id.equals(artistId))
+                    .distinct()
+                    .toArray(Long[]::new);
+
+                return TrackCache.builder()
+                    .spotifyTrackId(item.getTrackId())
+                    .user(account.getUser())
+                    .playedAt(item.getPlayedAt())
+                    .artist(artistId != null ? Artist.builder().id(artistId).build() : null)
+                    .featuredArtistIds(featured.length > 0 ? featured : null)
+                    .trackName(item.getTrackName())
+                    .build();
+            })
+            .toList();
+    }
+
+    private record ResolvedPage(List<SpotifyPlayRecord> items, Map<String, List<String>> artistGenres) {
+    }
+
+    private record WrittenPage(List<TrackCache> tracks, int inserted) {
+    }
+}
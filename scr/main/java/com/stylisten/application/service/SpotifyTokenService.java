@@ -0,0 +1,178 @@
+package com.stylisten.application.service;
+
+import com.stylisten.domain.entity.SpotifyAccount;
+import com.stylisten.domain.repository.SpotifyAccountRepository;
+import com.stylisten.infrastructure.cache.SpotifyTokenCache;
+import com.stylisten.infrastructure.datasource.ReadReplicaRoutingDataSource;
+import com.stylisten.infrastructure.spotify.SpotifyClient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SpotifyTokenService {
+
+    //renova token se expirou ou ta perto (5min de margem)
+    private static final Duration EXPIRY_MARGIN = Duration.ofMinutes(5);
+
+    private final SpotifyAccountRepository spotifyAccountRepository;
+    private final SpotifyTokenCache tokenCache;
+    private final SpotifyClient spotifyClient;
+
+    @Value("${spring.security.oauth2.client.registration.spotify.client-id}")
+    private String clientId;
+
+    @Value("${spring.security.oauth2.client.registration.spotify.client-secret}")
+    private String clientSecret;
+
+    @Value("${spotify.token.refresh-ahead-minutes:10}")
+    private Integer refreshAheadMinutes;
+
+    @Value("${spotify.token.batch-size:50}")
+    private Integer batchSize;
+
+    @Value("${spotify.token.batch-delay-ms:1000}")
+    private Long batchDelayMs;
+
+    @Value("${spotify.token.failure-backoff-minutes:5}")
+    private Long failureBackoffMinutes;
+
+    @Value("${spotify.token.max-failure-backoff-hours:24}")
+    private Long maxFailureBackoffHours;
+
+    //tempo que uma conta fica reservada pro no que ganhou o claim (no caiu = outro assume depois)
+    @Value("${spotify.token.claim-seconds:120}")
+    private Long claimSeconds;
+
+    public String getValidAccessToken(SpotifyAccount account) {
+        Instant validUntil = Instant.now().plus(EXPIRY_MARGIN);
+
+        //caminho quente: token valido no cache nao toca banco nem endpoint de token
+        return tokenCache.get(account.getId(), validUntil)
+            .orElseGet(() -> {
+                if (account.getTokenExpiresAt() != null &&
+                    account.getTokenExpiresAt().isAfter(validUntil)) {
+                    tokenCache.put(account.getId(), account.getAccessToken(), account.getTokenExpiresAt());
+                    return account.getAccessToken();
+                }
+                return refresh(account);
+            });
+    }
+
+    public void cacheToken(SpotifyAccount account) {
+        if (account.getAccessToken() != null && account.getTokenExpiresAt() != null) {
+            tokenCache.put(account.getId(), account.getAccessToken(), account.getTokenExpiresAt());
+        }
+    }
+
+    public String refresh(SpotifyAccount account) {
+        log.info("Renovando token do Spotify para conta: {}", account.getId());
+
+        Map<String, Object> tokenResponse = spotifyClient.refreshAccessToken(
+            account.getRefreshToken(),
+            clientId,
+            clientSecret
+        );
+
+        String newAccessToken = (String) tokenResponse.get("access_token");
+        Integer expiresIn = (Integer) tokenResponse.get("expires_in");
+        Instant expiresAt = Instant.now().plusSeconds(expiresIn);
+
+        //atualiza refresh token(se fornecido)
+        String newRefreshToken = tokenResponse.containsKey("refresh_token") ?
+            (String) tokenResponse.get("refresh_token") : account.getRefreshToken();
+
+        //update direto pra nao sobrescrever cursor/lease de um sync rodando em paralelo
+        spotifyAccountRepository.updateTokens(account.getId(), newAccessToken, newRefreshToken, expiresAt);
+
+        account.setAccessToken(newAccessToken);
+        account.setRefreshToken(newRefreshToken);
+        account.setTokenExpiresAt(expiresAt);
+
+        tokenCache.put(account.getId(), newAccessToken, expiresAt);
+        return newAccessToken;
+    }
+
+    @Scheduled(fixedDelayString = "${spotify.token.refresh-interval-ms:60000}")
+    public void refreshExpiringTokens() {
+        Instant horizon = Instant.now().plus(Duration.ofMinutes(refreshAheadMinutes));
+        int refreshed = 0;
+
+        //range no indice de token_expires_at; cada lote sai da faixa da proxima consulta
+        //(renovado, ou em backoff se falhou). no primario: a replica atrasada devolveria o
+        //mesmo lote e o refresh token ja rotacionado seria usado de novo
+        List<SpotifyAccount> batch;
+        do {
+            batch = ReadReplicaRoutingDataSource.onPrimary(() -> spotifyAccountRepository.findTokensToRefresh(
+                horizon,
+                Instant.now(),
+                PageRequest.of(0, batchSize)
+            ));
+
+            int failures = 0;
+            for (SpotifyAccount account : batch) {
+                //todas as replicas varrem a mesma faixa: sem claim duas renovam a mesma conta e,
+                //com refresh token rotativo, a que perde grava um token ja invalido
+                Instant now = Instant.now();
+                int claimed = spotifyAccountRepository.claimTokenRefresh(
+                    account.getId(),
+                    horizon,
+                    now,
+                    now.plusSeconds(claimSeconds)
+                );
+
+                if (claimed == 0) {
+                    log.debug("Token da conta {} já renovado ou reservado por outro nó", account.getId());
+                    continue;
+                }
+
+                try {
+                    refresh(account);
+                    refreshed++;
+                } catch (Exception e) {
+                    failures++;
+                    Instant retryAfter = backoffAfterFailure(account);
+                    spotifyAccountRepository.recordTokenRefreshFailure(account.getId(), retryAfter);
+                    log.warn("Erro ao renovar token da conta {} (nova tentativa após {}): {}",
+                        account.getId(), retryAfter, e.getMessage());
+                }
+            }
+
+            //lote inteiro falhando = endpoint fora, tenta de novo no proximo ciclo
+            if (failures == batch.size() || batch.size() < batchSize) {
+                break;
+            }
+
+            pauseBetweenBatches();
+        } while (!Thread.currentThread().isInterrupted());
+
+        if (refreshed > 0) {
+            log.info("Renovados {} tokens do Spotify antes de expirar", refreshed);
+        }
+    }
+
+    //exponencial por conta: refresh token revogado para de bater no endpoint a cada minuto
+    private Instant backoffAfterFailure(SpotifyAccount account) {
+        int failures = account.getTokenRefreshFailures() != null ? account.getTokenRefreshFailures() : 0;
+        Duration max = Duration.ofHours(maxFailureBackoffHours);
+        Duration backoff = Duration.ofMinutes(failureBackoffMinutes).multipliedBy(1L << Math.min(failures, 20));
+        return Instant.now().plus(backoff.compareTo(max) > 0 ? max : backoff);
+    }
+
+    private void pauseBetweenBatches() {
+        try {
+            Thread.sleep(batchDelayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.stylisten.application.service;
+
+import com.stylisten.api.dto.*;
+import com.stylisten.domain.repository.GenreStyleMappingRepository;
+import com.stylisten.infrastructure.ann.HnswIndex;
+import com.stylisten.infrastructure.ann.SparseVector;
+import com.stylisten.infrastructure.datasource.ReadReplicaRoutingDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//busca aproximada (HNSW) pra catalogos grandes; o modo cosine exato varre todos os estilos.
+//o grafo vai pra disco periodicamente: no restart so reconcilia com o banco, sem reconstruir
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stylisten.matching.mode", havingValue = "ann")
+public class StyleAnnIndex {
+
+    private final GenreStyleMappingRepository mappingRepository;
+    private final StyleMatchingIndex styleMatchingIndex;
+    private final Path snapshotPath;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+
+    //dimensao do vetor por genero; vai junto no snapshot pra manter os ids estaveis
+    private final Map<String, Integer> vocabulary = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    private volatile HnswIndex index;
+    private volatile boolean ready;
+
+    public StyleAnnIndex(
+        GenreStyleMappingRepository mappingRepository,
+        StyleMatchingIndex styleMatchingIndex,
+        @Value("${stylisten.matching.ann.snapshot-path:${java.io.tmpdir}/stylisten/styles.hnsw}") String snapshotPath,
+        @Value("${stylisten.matching.ann.m:16}") int m,
+        @Value("${stylisten.matching.ann.ef-construction:200}") int efConstruction,
+        @Value("${stylisten.matching.ann.ef-search:100}") int efSearch
+    ) {
+        this.mappingRepository = mappingRepository;
+        this.styleMatchingIndex = styleMatchingIndex;
+        this.snapshotPath = Path.of(snapshotPath);
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+    }
+
+    //enquanto carrega, o ProfileService usa o cosine exato
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<MatchingStyle> topMatches(Map<String, Double> genreScores, int limit) {
+        Map<Integer, Float> entries = new HashMap<>();
+        styleMatchingIndex.canonicalProfile(genreScores).forEach((genre, score) -> {
+            Integer dimension = vocabulary.get(genre);
+            if (dimension != null) {
+                entries.merge(dimension, score.floatValue(), Float::sum);
+            }
+        });
+
+        List<HnswIndex.Neighbor> neighbors = index.search(SparseVector.normalized(entries), limit, efSearch);
+        if (neighbors.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        //campos de exibicao vem do snapshot do StyleMatchingIndex: nenhuma ida ao banco por request
+        List<MatchingStyle> result = new ArrayList<>(neighbors.size());
+        for (HnswIndex.Neighbor neighbor : neighbors) {
+            MatchingStyle style = styleMatchingIndex.describe(neighbor.key(), neighbor.similarity());
+            if (style == null) {
+                //snapshot ainda nao tem o estilo (ou ja removeu); o proximo rebuild acerta
+                continue;
+            }
+            result.add(style);
+        }
+        return result;
+    }
+
+    //assincrono: carregar/reconciliar um catalogo grande nao segura o boot
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        load();
+    }
+
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onCatalogChanged(StyleCatalogChangedEvent event) {
+        reindex(event.styleId());
+    }
+
+    //mudancas feitas em outros nos da API nao geram evento aqui
+    @Scheduled(fixedDelayString = "${stylisten.matching.ann.reconcile-interval-ms:300000}")
+    public synchronized void refresh() {
+        if (!ready) {
+            //load ainda rodando; ele mesmo reconcilia no final
+            return;
+        }
+
+        int changed = reconcile();
+        if (changed > 0) {
+            log.debug("Índice ANN de estilos reconciliado com o banco: {} estilos atualizados", changed);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stylisten.matching.ann.snapshot-interval-ms:300000}")
+    public synchronized void persist() {
+        if (index == null || !dirty.getAndSet(false)) {
+            return;
+        }
+
+        //mais tombstones que nos vivos: busca fica lenta e o arquivo cresce a toa
+        if (index.deletedCount() > index.size()) {
+            index = index.compacted();
+        }
+
+        Path temp = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(snapshotPath.toAbsolutePath().getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                writeVocabulary(out);
+                index.writeTo(out);
+            }
+            //rename atomico: crash no meio da escrita nao corrompe o snapshot anterior
+            Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Snapshot do índice ANN salvo em {}: {} estilos", snapshotPath, index.size());
+        } catch (IOException e) {
+            dirty.set(true);
+            log.warn("Erro ao salvar snapshot do índice ANN em {}: {}", snapshotPath, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        persist();
+    }
+
+    synchronized void load() {
+        long start = System.currentTimeMillis();
+        HnswIndex loaded = readSnapshot();
+
+        if (loaded == null) {
+            vocabulary.clear();
+            loaded = new HnswIndex(m, efConstruction);
+        }
+        index = loaded;
+
+        int changed = reconcile();
+        ready = true;
+
+        log.info("Índice ANN de estilos pronto em {}ms: {} estilos, {} atualizados a partir do banco",
+            System.currentTimeMillis() - start, index.size(), changed);
+    }
+
+    //snapshot pode estar atrasado (mudancas feitas depois do ultimo persist ou em outro no)
+    private int reconcile() {
+        Map<UUID, Map<Integer, Float>> vectors = new HashMap<>();
+        for (GenreStyleMappingRepository.StyleVectorView row :
+            ReadReplicaRoutingDataSource.onPrimary(mappingRepository::findAllStyleVectors)) {
+            vectors.computeIfAbsent(row.getStyleId(), id -> new HashMap<>())
+                .merge(dimension(row.getGenreName()), row.getWeight().floatValue(), Float::sum);
+        }
+
+        Map<UUID, SparseVector> indexed = index.liveVectors();
+        int changed = 0;
+
+        for (Map.Entry<UUID, Map<Integer, Float>> entry : vectors.entrySet()) {
+            SparseVector vector = SparseVector.normalized(entry.getValue());
+            SparseVector current = indexed.remove(entry.getKey());
+            if (current == null || !current.sameAs(vector)) {
+                index.upsert(entry.getKey(), vector);
+                changed++;
+            }
+        }
+
+        //sobrou no indice mas nao existe mais (ou ficou sem mapeamento)
+        for (UUID removed : indexed.keySet()) {
+            index.remove(removed);
+            changed++;
+        }
+
+        if (changed > 0) {
+            dirty.set(true);
+        }
+        return changed;
+    }
+
+    private synchronized void reindex(UUID styleId) {
+        if (index == null) {
+            //load ainda nao rodou; o reconcile dele ja pega essa mudanca
+            return;
+        }
+
+        Map<Integer, Float> entries = new HashMap<>();
+        for (GenreStyleMappingRepository.StyleVectorView row :
+            ReadReplicaRoutingDataSource.onPrimary(() -> mappingRepository.findStyleVectorsByStyleId(styleId))) {
+            entries.merge(dimension(row.getGenreName()), row.getWeight().floatValue(), Float::sum);
+        }
+
+        SparseVector vector = SparseVector.normalized(entries);
+        if (vector.isEmpty()) {
+            index.remove(styleId);
+        } else {
+            index.upsert(styleId, vector);
+        }
+        dirty.set(true);
+    }
+
+    private synchronized int dimension(String genreName) {
+        String genre = GenreTaxonomy.normalize(genreName);
+        Integer dimension = vocabulary.get(genre);
+        if (dimension == null) {
+            dimension = vocabulary.size();
+            vocabulary.put(genre, dimension);
+        }
+        return dimension;
+    }
+
+    private HnswIndex readSnapshot() {
+        if (!Files.exists(snapshotPath)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            Map<String, Integer> loaded = new HashMap<>();
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                loaded.put(in.readUTF(), in.readInt());
+            }
+            HnswIndex snapshot = HnswIndex.readFrom(in);
+
+            vocabulary.clear();
+            vocabulary.putAll(loaded);
+            return snapshot;
+        } catch (IOException | RuntimeException e) {
+            //snapshot corrompido ou de outra versao: reconstroi do banco
+            log.warn("Snapshot do índice ANN em {} ignorado: {}", snapshotPath, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeVocabulary(DataOutputStream out) throws IOException {
+        Map<String, Integer> copy = new HashMap<>(vocabulary);
+        out.writeInt(copy.size());
+        for (Map.Entry<String, Integer> entry : copy.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.stylisten.application.service;
+
+import java.util.UUID;
+
+//estilos ou mapeamentos mudaram: indices derivados precisam ser reconstruidos
+public record StyleCatalogChangedEvent(UUID styleId) {
+}
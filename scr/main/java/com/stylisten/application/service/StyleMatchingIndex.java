@@ -0,0 +1,440 @@
+package com.stylisten.application.service;
+
+import com.stylisten.api.dto.*;
+import com.stylisten.domain.repository.GenreRepository;
+import com.stylisten.domain.repository.GenreStyleMappingRepository;
+import com.stylisten.infrastructure.datasource.ReadReplicaRoutingDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+//indice imutavel genero -> estilos em arrays CSR; scoring sem banco e sem boxing
+@Slf4j
+@Component
+public class StyleMatchingIndex {
+
+    private final GenreStyleMappingRepository mappingRepository;
+    private final GenreRepository genreRepository;
+    private final AtomicReference<Snapshot> current = new AtomicReference<>();
+    private final AtomicLong versions = new AtomicLong();
+    private final GenreVectorMath vectorMath = createVectorMath();
+
+    public StyleMatchingIndex(GenreStyleMappingRepository mappingRepository, GenreRepository genreRepository) {
+        this.mappingRepository = mappingRepository;
+        this.genreRepository = genreRepository;
+    }
+
+    public List<MatchingStyle> topMatches(Collection<String> genres, int limit) {
+        return snapshot().topMatches(genres, limit);
+    }
+
+    //modo cosine: perfil inteiro (todos os generos resolvidos pela taxonomia) contra o vetor de cada estilo
+    public List<MatchingStyle> topMatchesByCosine(Map<String, Double> genreScores, int limit) {
+        return snapshot().topMatchesByCosine(genreScores, limit, vectorMath);
+    }
+
+    //expande generos long-tail nos canonicos (com peso) pra indices que so conhecem os mapeados
+    public Map<String, Double> canonicalProfile(Map<String, Double> genreScores) {
+        return snapshot().canonicalProfile(genreScores);
+    }
+
+    //nome/descricao/tags do estilo direto do snapshot, sem ida ao banco; null se o estilo nao esta no indice
+    public MatchingStyle describe(UUID styleId, double confidence) {
+        return snapshot().describe(styleId, confidence);
+    }
+
+    public long version() {
+        return snapshot().version;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        rebuild();
+    }
+
+    //so depois do commit, senao o rebuild le o estado antigo
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onCatalogChanged(StyleCatalogChangedEvent event) {
+        rebuild();
+    }
+
+    //mudancas feitas em outros nos da API nao geram evento aqui
+    @Scheduled(fixedDelayString = "${stylisten.matching.index-refresh-ms:300000}")
+    public void refresh() {
+        rebuild();
+    }
+
+    public synchronized void rebuild() {
+        //primario: logo apos a escrita a replica pode nao ter o estilo novo
+        List<GenreStyleMappingRepository.StyleWeightView> rows =
+            ReadReplicaRoutingDataSource.onPrimary(mappingRepository::findAllStyleWeights);
+
+        Map<String, Map<String, Double>> aliases = new HashMap<>();
+        for (GenreRepository.GenreAliasView alias : genreRepository.findAllAliases()) {
+            aliases.computeIfAbsent(alias.getGenreName(), name -> new HashMap<>())
+                .put(alias.getCanonicalGenre(), alias.getWeight());
+        }
+
+        Snapshot snapshot = Snapshot.build(versions.incrementAndGet(), rows, aliases, genreRepository.findAllNames());
+        current.set(snapshot);
+
+        log.debug("Índice de estilos v{} reconstruído: {} gêneros, {} estilos, {} pesos, {} gêneros resolvidos",
+            snapshot.version, snapshot.genreOffsets.length - 1, snapshot.styleIds.length, snapshot.weights.length,
+            snapshot.taxonomy.memoSize());
+    }
+
+    private static GenreVectorMath createVectorMath() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                GenreVectorMath math = (GenreVectorMath) Class
+                    .forName("com.stylisten.application.service.SimdGenreVectorMath")
+                    .getDeclaredConstructor()
+                    .newInstance();
+                log.info("Matching por cosseno usando Vector API ({})", math.name());
+                return math;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                log.warn("Vector API indisponível, usando cálculo escalar: {}", e.getMessage());
+            }
+        }
+        return new ScalarGenreVectorMath();
+    }
+
+    private Snapshot snapshot() {
+        Snapshot snapshot = current.get();
+        if (snapshot == null) {
+            rebuild();
+            snapshot = current.get();
+        }
+        return snapshot;
+    }
+
+    private static final class Snapshot {
+        private final long version;
+        private final GenreTaxonomy taxonomy;
+        private final String[] genreNames;
+        //estilos do genero g ficam em [genreOffsets[g], genreOffsets[g + 1])
+        private final int[] genreOffsets;
+        private final int[] styleIndexes;
+        private final double[] weights;
+
+        //transposta pro modo cosine: generos do estilo s em [styleOffsets[s], styleOffsets[s + 1])
+        private final int[] styleOffsets;
+        private final int[] styleGenres;
+        private final float[] styleWeights;
+        private final float[] styleNorms;
+
+        private final UUID[] styleIds;
+        private final Map<UUID, Integer> styleIndexById;
+        private final String[] styleNames;
+        private final String[] descriptions;
+        private final List<String>[] tags;
+
+        private Snapshot(
+            long version,
+            GenreTaxonomy taxonomy,
+            String[] genreNames,
+            int[] genreOffsets,
+            int[] styleIndexes,
+            double[] weights,
+            int[] styleOffsets,
+            int[] styleGenres,
+            float[] styleWeights,
+            float[] styleNorms,
+            UUID[] styleIds,
+            Map<UUID, Integer> styleIndexById,
+            String[] styleNames,
+            String[] descriptions,
+            List<String>[] tags
+        ) {
+            this.version = version;
+            this.taxonomy = taxonomy;
+            this.genreNames = genreNames;
+            this.genreOffsets = genreOffsets;
+            this.styleIndexes = styleIndexes;
+            this.weights = weights;
+            this.styleOffsets = styleOffsets;
+            this.styleGenres = styleGenres;
+            this.styleWeights = styleWeights;
+            this.styleNorms = styleNorms;
+            this.styleIds = styleIds;
+            this.styleIndexById = styleIndexById;
+            this.styleNames = styleNames;
+            this.descriptions = descriptions;
+            this.tags = tags;
+        }
+
+        @SuppressWarnings("unchecked")
+        static Snapshot build(
+            long version,
+            List<GenreStyleMappingRepository.StyleWeightView> rows,
+            Map<String, Map<String, Double>> aliases,
+            Collection<String> knownGenres
+        ) {
+            Map<String, Integer> genreIds = new HashMap<>();
+            Map<UUID, Integer> styleIndex = new LinkedHashMap<>();
+            List<GenreStyleMappingRepository.StyleWeightView> styleRows = new ArrayList<>();
+            int[] genreCounts = new int[rows.size() + 1];
+
+            int[] rowGenre = new int[rows.size()];
+            int[] rowStyle = new int[rows.size()];
+
+            for (int i = 0; i < rows.size(); i++) {
+                GenreStyleMappingRepository.StyleWeightView row = rows.get(i);
+                int genre = genreIds.computeIfAbsent(GenreTaxonomy.normalize(row.getGenreName()), name -> genreIds.size());
+                Integer style = styleIndex.get(row.getStyleId());
+                if (style == null) {
+                    style = styleIndex.size();
+                    styleIndex.put(row.getStyleId(), style);
+                    styleRows.add(row);
+                }
+                rowGenre[i] = genre;
+                rowStyle[i] = style;
+                genreCounts[genre]++;
+            }
+
+            int genreCount = genreIds.size();
+            int[] offsets = new int[genreCount + 1];
+            for (int g = 0; g < genreCount; g++) {
+                offsets[g + 1] = offsets[g] + genreCounts[g];
+            }
+
+            int[] cursor = Arrays.copyOf(offsets, genreCount);
+            int[] styleIndexes = new int[rows.size()];
+            double[] weights = new double[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                int slot = cursor[rowGenre[i]]++;
+                styleIndexes[slot] = rowStyle[i];
+                weights[slot] = rows.get(i).getWeight();
+            }
+
+            int styleCount = styleRows.size();
+
+            //mapeamentos repetidos (mesmo genero apos normalizar) somam no vetor do estilo
+            List<Map<Integer, Float>> styleVectors = new ArrayList<>(styleCount);
+            for (int s = 0; s < styleCount; s++) {
+                styleVectors.add(new LinkedHashMap<>());
+            }
+            for (int i = 0; i < rows.size(); i++) {
+                styleVectors.get(rowStyle[i]).merge(rowGenre[i], rows.get(i).getWeight().floatValue(), Float::sum);
+            }
+
+            int[] styleOffsets = new int[styleCount + 1];
+            for (int s = 0; s < styleCount; s++) {
+                styleOffsets[s + 1] = styleOffsets[s] + styleVectors.get(s).size();
+            }
+
+            int[] styleGenres = new int[styleOffsets[styleCount]];
+            float[] styleWeights = new float[styleOffsets[styleCount]];
+            float[] styleNorms = new float[styleCount];
+            for (int s = 0; s < styleCount; s++) {
+                int slot = styleOffsets[s];
+                double squares = 0.0;
+                for (Map.Entry<Integer, Float> entry : styleVectors.get(s).entrySet()) {
+                    styleGenres[slot] = entry.getKey();
+                    styleWeights[slot++] = entry.getValue();
+                    squares += (double) entry.getValue() * entry.getValue();
+                }
+                styleNorms[s] = (float) Math.sqrt(squares);
+            }
+
+            UUID[] ids = new UUID[styleCount];
+            String[] names = new String[styleCount];
+            String[] descriptions = new String[styleCount];
+            List<String>[] tags = new List[styleCount];
+            for (int s = 0; s < styleCount; s++) {
+                GenreStyleMappingRepository.StyleWeightView row = styleRows.get(s);
+                ids[s] = row.getStyleId();
+                names[s] = row.getStyleName();
+                descriptions[s] = row.getDescription();
+                tags[s] = row.getTags() != null ?
+                    Collections.unmodifiableList(Arrays.asList(row.getTags())) : Collections.emptyList();
+            }
+
+            GenreTaxonomy taxonomy = GenreTaxonomy.build(Map.copyOf(genreIds), aliases, knownGenres);
+            String[] genreNames = new String[genreCount];
+            genreIds.forEach((name, id) -> genreNames[id] = name);
+
+            return new Snapshot(version, taxonomy, genreNames, offsets, styleIndexes, weights,
+                styleOffsets, styleGenres, styleWeights, styleNorms, ids, Map.copyOf(styleIndex), names, descriptions, tags);
+        }
+
+        MatchingStyle describe(UUID styleId, double confidence) {
+            Integer style = styleIndexById.get(styleId);
+            return style == null ? null : toMatchingStyle(style, confidence);
+        }
+
+        List<MatchingStyle> topMatches(Collection<String> genres, int limit) {
+            double[] scores = new double[styleIds.length];
+            boolean[] seen = new boolean[styleIds.length];
+            int[] touched = new int[styleIds.length];
+            int touchedCount = 0;
+
+            for (String genre : genres) {
+                //genero sem mapeamento direto cai nos canonicos que o compoem, com peso menor
+                GenreTaxonomy.Resolution resolution = taxonomy.resolve(genre);
+                for (int r = 0; r < resolution.genreIds().length; r++) {
+                    int g = resolution.genreIds()[r];
+                    double factor = resolution.weights()[r];
+                    for (int i = genreOffsets[g]; i < genreOffsets[g + 1]; i++) {
+                        int style = styleIndexes[i];
+                        if (!seen[style]) {
+                            seen[style] = true;
+                            touched[touchedCount++] = style;
+                        }
+                        scores[style] += weights[i] * factor;
+                    }
+                }
+            }
+
+            return select(scores, touched, touchedCount, limit, true);
+        }
+
+        Map<String, Double> canonicalProfile(Map<String, Double> genreScores) {
+            Map<String, Double> profile = new HashMap<>();
+            genreScores.forEach((genre, score) -> {
+                if (score == null || score <= 0) {
+                    return;
+                }
+                GenreTaxonomy.Resolution resolution = taxonomy.resolve(genre);
+                for (int r = 0; r < resolution.genreIds().length; r++) {
+                    profile.merge(genreNames[resolution.genreIds()[r]], score * resolution.weights()[r], Double::sum);
+                }
+            });
+            return profile;
+        }
+
+        List<MatchingStyle> topMatchesByCosine(Map<String, Double> genreScores, int limit, GenreVectorMath math) {
+            int genreCount = genreOffsets.length - 1;
+            float[] profile = new float[genreCount];
+
+            for (Map.Entry<String, Double> entry : genreScores.entrySet()) {
+                if (entry.getValue() == null || entry.getValue() <= 0) {
+                    continue;
+                }
+                GenreTaxonomy.Resolution resolution = taxonomy.resolve(entry.getKey());
+                for (int r = 0; r < resolution.genreIds().length; r++) {
+                    profile[resolution.genreIds()[r]] += (float) (entry.getValue() * resolution.weights()[r]);
+                }
+            }
+
+            //de proposito, a norma so tem os generos que a taxonomia resolve: genero sem nenhum
+            //mapeamento nao aproxima nem afasta estilo nenhum, so baixaria a confianca de todos por igual.
+            //o modo ann normaliza o mesmo vetor (canonicalProfile), entao os dois modos dao o mesmo score
+            float profileNorm = (float) Math.sqrt(math.dot(profile, profile));
+            if (profileNorm == 0f || limit <= 0) {
+                return Collections.emptyList();
+            }
+
+            //um gather+mul SIMD sobre todos os pesos; depois soma por segmento de estilo
+            float[] products = new float[styleWeights.length];
+            math.gatherMultiply(profile, styleGenres, styleWeights, products);
+
+            double[] scores = new double[styleIds.length];
+            int[] candidates = new int[styleIds.length];
+            int candidateCount = 0;
+
+            for (int style = 0; style < styleIds.length; style++) {
+                float dot = 0f;
+                for (int i = styleOffsets[style]; i < styleOffsets[style + 1]; i++) {
+                    dot += products[i];
+                }
+                if (dot > 0f && styleNorms[style] > 0f) {
+                    scores[style] = dot / (profileNorm * styleNorms[style]);
+                    candidates[candidateCount++] = style;
+                }
+            }
+
+            return select(scores, candidates, candidateCount, limit, false);
+        }
+
+        //relative: confianca relativa ao melhor score (soma); senao o score ja e o cosseno
+        private List<MatchingStyle> select(double[] scores, int[] touched, int touchedCount, int limit, boolean relative) {
+            if (touchedCount == 0 || limit <= 0) {
+                return Collections.emptyList();
+            }
+
+            double maxScore = 0.0;
+
+            //min-heap de tamanho limit: O(n log k) em vez de ordenar tudo
+            int[] heap = new int[Math.min(limit, touchedCount)];
+            int heapSize = 0;
+            for (int t = 0; t < touchedCount; t++) {
+                int style = touched[t];
+                maxScore = Math.max(maxScore, scores[style]);
+                if (heapSize < heap.length) {
+                    heap[heapSize] = style;
+                    siftUp(heap, heapSize++, scores);
+                } else if (scores[style] > scores[heap[0]]) {
+                    heap[0] = style;
+                    siftDown(heap, heapSize, scores);
+                }
+            }
+
+            MatchingStyle[] result = new MatchingStyle[heapSize];
+            for (int i = heapSize - 1; i >= 0; i--) {
+                int style = heap[0];
+                heap[0] = heap[i];
+                siftDown(heap, i, scores);
+                result[i] = toMatchingStyle(style,
+                    !relative ? scores[style] : maxScore > 0 ? scores[style] / maxScore : 0.0);
+            }
+            return Arrays.asList(result);
+        }
+
+        private MatchingStyle toMatchingStyle(int style, double confidence) {
+            return MatchingStyle.builder()
+                .styleId(styleIds[style])
+                .name(styleNames[style])
+                .confidence(confidence)
+                .description(descriptions[style])
+                .tags(tags[style])
+                .build();
+        }
+
+        private static void siftUp(int[] heap, int index, double[] scores) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (scores[heap[index]] >= scores[heap[parent]]) {
+                    return;
+                }
+                swap(heap, index, parent);
+                index = parent;
+            }
+        }
+
+        private static void siftDown(int[] heap, int size, double[] scores) {
+            int index = 0;
+            while (true) {
+                int smallest = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < size && scores[heap[left]] < scores[heap[smallest]]) {
+                    smallest = left;
+                }
+                if (right < size && scores[heap[right]] < scores[heap[smallest]]) {
+                    smallest = right;
+                }
+                if (smallest == index) {
+                    return;
+                }
+                swap(heap, index, smallest);
+                index = smallest;
+            }
+        }
+
+        private static void swap(int[] heap, int a, int b) {
+            int tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+}
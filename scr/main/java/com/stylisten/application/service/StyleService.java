@@ -9,6 +9,7 @@ import com.stylisten.domain.repository.StyleRepository;
 import com.stylisten.infrastructure.exception.ResourceNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.*;
@@ -22,6 +23,7 @@ public class StyleService {
     private final StyleRepository styleRepository;
     private final GenreStyleMappingRepository mappingRepository;
     private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional(readOnly = true)
     public StyleListResponse getAllStyles() {
@@ -81,6 +83,7 @@ public class StyleService {
             mappingRepository.saveAll(mappings);
         }
 
+        eventPublisher.publishEvent(new StyleCatalogChangedEvent(style.getId()));
         log.info("Estilo criado com sucesso: {}", style.getId());
         return convertToResponse(style);
     }
@@ -107,6 +110,8 @@ public class StyleService {
             }
         }
 
+        Set<UUID> otherStyles = new HashSet<>();
+
         //remove mapeamentos antigos e faz novos, vai q a pessoa mudou ne
         if (request.getGenreMappings() != null) {
             List<GenreStyleMapping> existingMappings = 
@@ -116,6 +121,12 @@ public class StyleService {
                         .toList()
                 );
 
+            //o delete e por genero: mapeamentos de outros estilos tambem mudam
+            existingMappings.stream()
+                .map(mapping -> mapping.getStyle().getId())
+                .filter(id -> !id.equals(styleId))
+                .forEach(otherStyles::add);
+
             mappingRepository.deleteAll(existingMappings);
 
             List<GenreStyleMapping> newMappings = request.getGenreMappings().stream()
@@ -130,6 +141,8 @@ public class StyleService {
         }
 
         style = styleRepository.save(style);
+        eventPublisher.publishEvent(new StyleCatalogChangedEvent(styleId));
+        otherStyles.forEach(id -> eventPublisher.publishEvent(new StyleCatalogChangedEvent(id)));
         return convertToResponse(style);
     }
 
@@ -141,18 +154,17 @@ public class StyleService {
             .orElseThrow(() -> new ResourceNotFoundException("Estilo não encontrado"));
 
         styleRepository.delete(style);
+        eventPublisher.publishEvent(new StyleCatalogChangedEvent(styleId));
     }
 
     @Transactional(readOnly = true)
     public GenreMappingResponse getStylesByGenre(String genreName) {
-        List<GenreStyleMapping> mappings = mappingRepository
-            .findByGenreName(genreName.toLowerCase());
-
-        List<StyleWithWeight> styles = mappings.stream()
-            .sorted(Comparator.comparing(GenreStyleMapping::getWeight).reversed())
+        //ja vem ordenado por peso e com o estilo no mesmo SELECT
+        List<StyleWithWeight> styles = mappingRepository
+            .findStyleWeightsByGenreName(genreName.toLowerCase()).stream()
             .map(m -> StyleWithWeight.builder()
-                .styleId(m.getStyle().getId())
-                .styleName(m.getStyle().getName())
+                .styleId(m.getStyleId())
+                .styleName(m.getStyleName())
                 .weight(m.getWeight())
                 .build())
             .toList();
@@ -0,0 +1,31 @@
+package com.stylisten.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.util.HashSet;
+import java.util.Set;
+
+@Entity
+@Table(name = "artists")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+class Artist {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    //nulo so para artistas migrados do jsonb antigo, que nao tinham id do Spotify
+    @Column(name = "spotify_artist_id", unique = true)
+    private String spotifyArtistId;
+
+    @Column(name = "name")
+    private String name;
+
+    @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(
+        name = "artist_genres",
+        joinColumns = @JoinColumn(name = "artist_id"),
+        inverseJoinColumns = @JoinColumn(name = "genre_id")
+    )
+    @Builder.Default
+    private Set<Genre> genres = new HashSet<>();
+}
@@ -0,0 +1,17 @@
+package com.stylisten.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Table(name = "genres")
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+class Genre {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    //sempre em minusculas
+    @Column(nullable = false, unique = true)
+    private String name;
+}
@@ -9,7 +9,9 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "genre_stats", indexes = {
-    @Index(name = "idx_user_period", columnList = "user_id, period_start")
+    @Index(name = "idx_genre_stats_period_start", columnList = "period_start")
+}, uniqueConstraints = {
+    @UniqueConstraint(name = "uq_genre_stat_period", columnNames = {"user_id", "period_start", "genre_name"})
 })
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 class GenreStat {
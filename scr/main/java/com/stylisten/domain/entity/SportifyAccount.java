@@ -33,4 +33,22 @@ class SpotifyAccount {
 
     @Column(name = "last_sync_at")
     private Instant lastSyncAt;
+
+    //cursor do sync incremental: played_at mais recente ja gravado
+    @Column(name = "last_played_at")
+    private Instant lastPlayedAt;
+
+    //lease de sync em background, so alterado via update direto no repositorio
+    @Column(name = "sync_lease_owner", insertable = false, updatable = false)
+    private String syncLeaseOwner;
+
+    @Column(name = "sync_lease_until", insertable = false, updatable = false)
+    private Instant syncLeaseUntil;
+
+    //backoff da renovacao proativa (refresh token revogado etc.), so via update direto
+    @Column(name = "token_refresh_failures", insertable = false, updatable = false)
+    private Integer tokenRefreshFailures;
+
+    @Column(name = "token_refresh_after", insertable = false, updatable = false)
+    private Instant tokenRefreshAfter;
 }
\ No newline at end of file
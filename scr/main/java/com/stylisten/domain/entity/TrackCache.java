@@ -9,7 +9,9 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "tracks_cache", indexes = {
-    @Index(name = "idx_user_played_at", columnList = "user_id, played_at")
+    @Index(name = "idx_tracks_user_played_artist", columnList = "user_id, played_at")
+}, uniqueConstraints = {
+    @UniqueConstraint(name = "uq_track_play", columnNames = {"user_id", "spotify_track_id", "played_at"})
 })
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 class TrackCache {
@@ -27,15 +29,18 @@ class TrackCache {
     @Column(name = "played_at", nullable = false)
     private Instant playedAt;
 
-    @Column(name = "artist_name")
-    private String artistName;
+    //artista principal; generos vem de artist_genres
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "artist_id")
+    private Artist artist;
+
+    //demais artistas da faixa (feats); os generos deles tambem contam no rollup
+    @Column(name = "featured_artist_ids", columnDefinition = "bigint[]")
+    private Long[] featuredArtistIds;
 
     @Column(name = "track_name")
     private String trackName;
 
-    @Column(name = "genres", columnDefinition = "jsonb")
-    private String genres;
-
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private Instant createdAt;
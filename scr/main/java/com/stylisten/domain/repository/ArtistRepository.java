@@ -0,0 +1,18 @@
+package com.stylisten.domain.repository;
+
+import com.stylisten.domain.entity.*;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ArtistRepository extends JpaRepository<Artist, Long>, ArtistRepositoryCustom {
+
+    //cada linha: [artist_id, genre_id]
+    @Query(value = "SELECT artist_id, genre_id FROM artist_genres WHERE artist_id IN (:artistIds)",
+           nativeQuery = true)
+    List<Object[]> findGenreIdsByArtistIdIn(@Param("artistIds") Collection<Long> artistIds);
+}
@@ -0,0 +1,10 @@
+package com.stylisten.domain.repository;
+
+import java.util.Map;
+
+public interface ArtistRepositoryCustom {
+    //spotify_artist_id -> nome; retorna spotify_artist_id -> artists.id (existentes ou criados)
+    Map<String, Long> upsertAll(Map<String, String> namesBySpotifyId);
+
+    void linkGenres(Map<Long, int[]> genreIdsByArtist);
+}
@@ -0,0 +1,124 @@
+package com.stylisten.domain.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class ArtistRepositoryCustomImpl implements ArtistRepositoryCustom {
+
+    //o SELECT final nao enxerga o que o CTE inseriu, entao os dois lados do UNION nao se repetem
+    private static final String UPSERT_SQL =
+        "WITH input AS (" +
+        "  SELECT * FROM unnest(CAST(? AS text[]), CAST(? AS text[])) AS i(spotify_artist_id, name)" +
+        "), inserted AS (" +
+        "  INSERT INTO artists (spotify_artist_id, name) " +
+        "  SELECT spotify_artist_id, name FROM input " +
+        "  ON CONFLICT (spotify_artist_id) DO NOTHING " +
+        "  RETURNING id, spotify_artist_id" +
+        ") " +
+        "SELECT id, spotify_artist_id FROM inserted " +
+        "UNION ALL " +
+        "SELECT a.id, a.spotify_artist_id FROM artists a " +
+        "JOIN input i ON i.spotify_artist_id = a.spotify_artist_id";
+
+    private static final String SELECT_SQL =
+        "SELECT id, spotify_artist_id FROM artists WHERE spotify_artist_id = ANY(CAST(? AS text[]))";
+
+    private static final String LINK_SQL =
+        "INSERT INTO artist_genres (artist_id, genre_id) " +
+        "SELECT * FROM unnest(CAST(? AS bigint[]), CAST(? AS integer[])) " +
+        "ON CONFLICT DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Map<String, Long> upsertAll(Map<String, String> namesBySpotifyId) {
+        Map<String, Long> ids = new HashMap<>();
+        if (namesBySpotifyId.isEmpty()) {
+            return ids;
+        }
+
+        String[] spotifyIds = namesBySpotifyId.keySet().toArray(String[]::new);
+        String[] names = namesBySpotifyId.values().toArray(String[]::new);
+
+        jdbcTemplate.execute(UPSERT_SQL, (PreparedStatement ps) -> {
+            Array idArray = ps.getConnection().createArrayOf("text", spotifyIds);
+            Array nameArray = ps.getConnection().createArrayOf("text", names);
+            try {
+                ps.setArray(1, idArray);
+                ps.setArray(2, nameArray);
+                collectIds(ps, ids);
+                return null;
+            } finally {
+                idArray.free();
+                nameArray.free();
+            }
+        });
+
+        //insert concorrente de outro no commitou depois do nosso snapshot: busca de novo
+        if (ids.size() < spotifyIds.length) {
+            String[] missing = namesBySpotifyId.keySet().stream()
+                .filter(id -> !ids.containsKey(id))
+                .toArray(String[]::new);
+
+            jdbcTemplate.execute(SELECT_SQL, (PreparedStatement ps) -> {
+                Array idArray = ps.getConnection().createArrayOf("text", missing);
+                try {
+                    ps.setArray(1, idArray);
+                    collectIds(ps, ids);
+                    return null;
+                } finally {
+                    idArray.free();
+                }
+            });
+        }
+
+        return ids;
+    }
+
+    @Override
+    public void linkGenres(Map<Long, int[]> genreIdsByArtist) {
+        List<Long> artistIds = new ArrayList<>();
+        List<Integer> genreIds = new ArrayList<>();
+
+        genreIdsByArtist.forEach((artistId, genres) -> {
+            for (int genreId : genres) {
+                artistIds.add(artistId);
+                genreIds.add(genreId);
+            }
+        });
+
+        if (artistIds.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.execute(LINK_SQL, (PreparedStatement ps) -> {
+            Array artistArray = ps.getConnection().createArrayOf("int8", artistIds.toArray());
+            Array genreArray = ps.getConnection().createArrayOf("int4", genreIds.toArray());
+            try {
+                ps.setArray(1, artistArray);
+                ps.setArray(2, genreArray);
+                return ps.executeUpdate();
+            } finally {
+                artistArray.free();
+                genreArray.free();
+            }
+        });
+    }
+
+    private static void collectIds(PreparedStatement ps, Map<String, Long> ids) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                ids.put(rs.getString(2), rs.getLong(1));
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.stylisten.domain.repository;
+
+import com.stylisten.domain.entity.*;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface GenreRepository extends JpaRepository<Genre, Integer>, GenreRepositoryCustom {
+
+    @Query("SELECT g.name FROM Genre g")
+    List<String> findAllNames();
+
+    @Query(value = "SELECT genre_name AS genreName, canonical_genre AS canonicalGenre, weight AS weight " +
+                   "FROM genre_aliases", nativeQuery = true)
+    List<GenreAliasView> findAllAliases();
+
+    interface GenreAliasView {
+        String getGenreName();
+        String getCanonicalGenre();
+        Double getWeight();
+    }
+}
@@ -0,0 +1,9 @@
+package com.stylisten.domain.repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+public interface GenreRepositoryCustom {
+    //nomes ja normalizados; retorna nome -> genres.id (existentes ou criados)
+    Map<String, Integer> upsertAll(Collection<String> names);
+}
@@ -0,0 +1,70 @@
+package com.stylisten.domain.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class GenreRepositoryCustomImpl implements GenreRepositoryCustom {
+
+    private static final String UPSERT_SQL =
+        "WITH input AS (" +
+        "  SELECT DISTINCT unnest(CAST(? AS text[])) AS name" +
+        "), inserted AS (" +
+        "  INSERT INTO genres (name) SELECT name FROM input " +
+        "  ON CONFLICT (name) DO NOTHING " +
+        "  RETURNING id, name" +
+        ") " +
+        "SELECT id, name FROM inserted " +
+        "UNION ALL " +
+        "SELECT g.id, g.name FROM genres g JOIN input i ON i.name = g.name";
+
+    private static final String SELECT_SQL =
+        "SELECT id, name FROM genres WHERE name = ANY(CAST(? AS text[]))";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Map<String, Integer> upsertAll(Collection<String> names) {
+        Map<String, Integer> ids = new HashMap<>();
+        if (names.isEmpty()) {
+            return ids;
+        }
+
+        query(UPSERT_SQL, names.toArray(String[]::new), ids);
+
+        //insert concorrente commitado depois do snapshot do statement
+        if (ids.size() < names.size()) {
+            query(SELECT_SQL, names.stream().filter(name -> !ids.containsKey(name)).toArray(String[]::new), ids);
+        }
+
+        return ids;
+    }
+
+    private void query(String sql, String[] names, Map<String, Integer> ids) {
+        jdbcTemplate.execute(sql, (PreparedStatement ps) -> {
+            Array nameArray = ps.getConnection().createArrayOf("text", names);
+            try {
+                ps.setArray(1, nameArray);
+                collectIds(ps, ids);
+                return null;
+            } finally {
+                nameArray.free();
+            }
+        });
+    }
+
+    private static void collectIds(PreparedStatement ps, Map<String, Integer> ids) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                ids.put(rs.getString(2), rs.getInt(1));
+            }
+        }
+    }
+}
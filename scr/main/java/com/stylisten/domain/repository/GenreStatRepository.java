@@ -2,9 +2,11 @@ package com.stylisten.domain.repository;
 
 import com.stylisten.domain.entity.*;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
@@ -12,7 +14,7 @@ import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface GenreStatRepository extends JpaRepository<GenreStat, UUID> {
+public interface GenreStatRepository extends JpaRepository<GenreStat, UUID>, GenreStatRepositoryCustom {
     List<GenreStat> findByUserIdAndPeriodStartOrderByNormalizedScoreDesc(
         UUID userId, 
         LocalDate periodStart
@@ -27,4 +29,15 @@ public interface GenreStatRepository extends JpaRepository<GenreStat, UUID> {
     );
 
     void deleteByUserIdAndPeriodStartBefore(UUID userId, LocalDate before);
+
+    //lote limitado por chamada: DELETE curto, sem segurar lock na tabela inteira
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM genre_stats WHERE id IN (" +
+           "SELECT id FROM genre_stats WHERE period_start < :before LIMIT :batchSize)",
+           nativeQuery = true)
+    int deleteBatchByPeriodStartBefore(
+        @Param("before") LocalDate before,
+        @Param("batchSize") int batchSize
+    );
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.stylisten.domain.repository;
+
+import com.stylisten.domain.entity.*;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public interface GenreStatRepositoryCustom {
+    //substitui o conjunto de stats do (usuario, period_start) pelo informado; lista vazia limpa o periodo
+    void upsertAll(UUID userId, LocalDate periodStart, LocalDate periodEnd, List<GenreStat> stats);
+}
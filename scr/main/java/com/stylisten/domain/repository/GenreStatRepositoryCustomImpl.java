@@ -0,0 +1,73 @@
+package com.stylisten.domain.repository;
+
+import com.stylisten.domain.entity.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.sql.Array;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+public class GenreStatRepositoryCustomImpl implements GenreStatRepositoryCustom {
+
+    //generos que sairam do periodo sao removidos; os que ficaram sao atualizados no lugar
+    private static final String UPSERT_SQL =
+        "WITH input AS (" +
+        "  SELECT * FROM unnest(CAST(? AS text[]), CAST(? AS integer[]), CAST(? AS double precision[])) " +
+        "  AS s(genre_name, raw_count, normalized_score)" +
+        "), removed AS (" +
+        "  DELETE FROM genre_stats g WHERE g.user_id = ? AND g.period_start = ? " +
+        "  AND g.genre_name NOT IN (SELECT genre_name FROM input)" +
+        ") " +
+        "INSERT INTO genre_stats " +
+        "(id, user_id, genre_name, raw_count, normalized_score, period_start, period_end, created_at) " +
+        "SELECT gen_random_uuid(), ?, s.genre_name, s.raw_count, s.normalized_score, ?, ?, now() " +
+        "FROM input s " +
+        "ON CONFLICT (user_id, period_start, genre_name) DO UPDATE SET " +
+        "raw_count = EXCLUDED.raw_count, normalized_score = EXCLUDED.normalized_score, " +
+        "period_end = EXCLUDED.period_end, created_at = EXCLUDED.created_at";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    //sem early return na lista vazia: o DELETE ainda precisa tirar as stats antigas do periodo
+    @Override
+    public void upsertAll(UUID userId, LocalDate periodStart, LocalDate periodEnd, List<GenreStat> stats) {
+        int size = stats.size();
+        String[] genreNames = new String[size];
+        Integer[] rawCounts = new Integer[size];
+        Double[] scores = new Double[size];
+
+        for (int i = 0; i < size; i++) {
+            genreNames[i] = stats.get(i).getGenreName();
+            rawCounts[i] = stats.get(i).getRawCount();
+            scores[i] = stats.get(i).getNormalizedScore();
+        }
+
+        jdbcTemplate.execute(UPSERT_SQL, (PreparedStatement ps) -> {
+            Array[] arrays = {
+                ps.getConnection().createArrayOf("text", genreNames),
+                ps.getConnection().createArrayOf("integer", rawCounts),
+                ps.getConnection().createArrayOf("float8", scores)
+            };
+
+            try {
+                for (int i = 0; i < arrays.length; i++) {
+                    ps.setArray(i + 1, arrays[i]);
+                }
+                ps.setObject(4, userId);
+                ps.setDate(5, Date.valueOf(periodStart));
+                ps.setObject(6, userId);
+                ps.setDate(7, Date.valueOf(periodStart));
+                ps.setDate(8, Date.valueOf(periodEnd));
+                return ps.executeUpdate();
+            } finally {
+                for (Array array : arrays) {
+                    array.free();
+                }
+            }
+        });
+    }
+}
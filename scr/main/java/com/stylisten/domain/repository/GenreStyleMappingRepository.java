@@ -22,4 +22,48 @@ public interface GenreStyleMappingRepository extends JpaRepository<GenreStyleMap
     
     @Query("SELECT DISTINCT gsm.genreName FROM GenreStyleMapping gsm")
     List<String> findAllDistinctGenres();
+
+    //projecoes com join no estilo: um SELECT so, sem lazy load de style por mapeamento
+    @Query("SELECT s.id AS styleId, s.name AS styleName, s.description AS description, " +
+           "s.tags AS tags, gsm.genreName AS genreName, gsm.weight AS weight " +
+           "FROM GenreStyleMapping gsm JOIN gsm.style s " +
+           "WHERE gsm.genreName IN :genres " +
+           "ORDER BY gsm.weight DESC")
+    List<StyleWeightView> findStyleWeightsByGenreNameIn(@Param("genres") List<String> genres);
+
+    @Query("SELECT s.id AS styleId, s.name AS styleName, s.description AS description, " +
+           "s.tags AS tags, gsm.genreName AS genreName, gsm.weight AS weight " +
+           "FROM GenreStyleMapping gsm JOIN gsm.style s " +
+           "WHERE gsm.genreName = :genreName " +
+           "ORDER BY gsm.weight DESC")
+    List<StyleWeightView> findStyleWeightsByGenreName(@Param("genreName") String genreName);
+
+    @Query("SELECT s.id AS styleId, s.name AS styleName, s.description AS description, " +
+           "s.tags AS tags, gsm.genreName AS genreName, gsm.weight AS weight " +
+           "FROM GenreStyleMapping gsm JOIN gsm.style s")
+    List<StyleWeightView> findAllStyleWeights();
+
+    //so o vetor (estilo, genero, peso), sem os textos do estilo
+    @Query("SELECT gsm.style.id AS styleId, gsm.genreName AS genreName, gsm.weight AS weight " +
+           "FROM GenreStyleMapping gsm")
+    List<StyleVectorView> findAllStyleVectors();
+
+    @Query("SELECT gsm.style.id AS styleId, gsm.genreName AS genreName, gsm.weight AS weight " +
+           "FROM GenreStyleMapping gsm WHERE gsm.style.id = :styleId")
+    List<StyleVectorView> findStyleVectorsByStyleId(@Param("styleId") UUID styleId);
+
+    interface StyleVectorView {
+        UUID getStyleId();
+        String getGenreName();
+        Double getWeight();
+    }
+
+    interface StyleWeightView {
+        UUID getStyleId();
+        String getStyleName();
+        String getDescription();
+        String[] getTags();
+        String getGenreName();
+        Double getWeight();
+    }
 }
\ No newline at end of file
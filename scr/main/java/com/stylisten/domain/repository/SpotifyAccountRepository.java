@@ -1,10 +1,13 @@
 package com.stylisten.domain.repository;
 
 import com.stylisten.domain.entity.*;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
@@ -16,4 +19,90 @@ public interface SpotifyAccountRepository extends JpaRepository<SpotifyAccount,
     Optional<SpotifyAccount> findByUserId(UUID userId);
     Optional<SpotifyAccount> findBySpotifyUserId(String spotifyUserId);
     boolean existsByUserId(UUID userId);
+
+    @Query("SELECT a FROM SpotifyAccount a " +
+           "WHERE (a.lastSyncAt IS NULL OR a.lastSyncAt < :threshold) " +
+           "AND (a.syncLeaseUntil IS NULL OR a.syncLeaseUntil < :now) " +
+           "ORDER BY a.lastSyncAt ASC NULLS FIRST")
+    List<SpotifyAccount> findStaleForSync(
+        @Param("threshold") Instant threshold,
+        @Param("now") Instant now,
+        Pageable pageable
+    );
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE SpotifyAccount a SET a.syncLeaseOwner = :owner, a.syncLeaseUntil = :until " +
+           "WHERE a.id = :id " +
+           "AND (a.syncLeaseUntil IS NULL OR a.syncLeaseUntil < :now OR a.syncLeaseOwner = :owner)")
+    int claimSyncLease(
+        @Param("id") UUID id,
+        @Param("owner") String owner,
+        @Param("now") Instant now,
+        @Param("until") Instant until
+    );
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE SpotifyAccount a SET a.syncLeaseOwner = NULL, a.syncLeaseUntil = NULL " +
+           "WHERE a.id = :id AND a.syncLeaseOwner = :owner")
+    int releaseSyncLease(@Param("id") UUID id, @Param("owner") String owner);
+
+    //contas em backoff ficam fora da faixa: senao as quebradas ocupam sempre o primeiro lote
+    @Query("SELECT a FROM SpotifyAccount a " +
+           "WHERE a.tokenExpiresAt < :before " +
+           "AND (a.tokenRefreshAfter IS NULL OR a.tokenRefreshAfter < :now) " +
+           "ORDER BY a.tokenExpiresAt ASC")
+    List<SpotifyAccount> findTokensToRefresh(
+        @Param("before") Instant before,
+        @Param("now") Instant now,
+        Pageable pageable
+    );
+
+    //claim do refresh entre nos: so um passa no UPDATE condicional. token_refresh_after no futuro
+    //tira a conta da faixa dos outros ate o updateTokens limpar (ou o backoff substituir)
+    @Modifying
+    @Transactional
+    @Query("UPDATE SpotifyAccount a SET a.tokenRefreshAfter = :until " +
+           "WHERE a.id = :id AND a.tokenExpiresAt < :before " +
+           "AND (a.tokenRefreshAfter IS NULL OR a.tokenRefreshAfter < :now)")
+    int claimTokenRefresh(
+        @Param("id") UUID id,
+        @Param("before") Instant before,
+        @Param("now") Instant now,
+        @Param("until") Instant until
+    );
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE SpotifyAccount a SET a.lastPlayedAt = :lastPlayedAt, a.lastSyncAt = :lastSyncAt " +
+           "WHERE a.id = :id")
+    int updateSyncCursor(
+        @Param("id") UUID id,
+        @Param("lastPlayedAt") Instant lastPlayedAt,
+        @Param("lastSyncAt") Instant lastSyncAt
+    );
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE SpotifyAccount a SET a.tokenRefreshFailures = a.tokenRefreshFailures + 1, " +
+           "a.tokenRefreshAfter = :retryAfter " +
+           "WHERE a.id = :id")
+    int recordTokenRefreshFailure(
+        @Param("id") UUID id,
+        @Param("retryAfter") Instant retryAfter
+    );
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE SpotifyAccount a SET a.accessToken = :accessToken, " +
+           "a.refreshToken = :refreshToken, a.tokenExpiresAt = :expiresAt, " +
+           "a.tokenRefreshFailures = 0, a.tokenRefreshAfter = NULL " +
+           "WHERE a.id = :id")
+    int updateTokens(
+        @Param("id") UUID id,
+        @Param("accessToken") String accessToken,
+        @Param("refreshToken") String refreshToken,
+        @Param("expiresAt") Instant expiresAt
+    );
 }
@@ -0,0 +1,134 @@
+package com.stylisten.domain.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Optional;
+
+//DDL das particoes mensais de tracks_cache (tracks_cache_pAAAA_MM, limites em UTC)
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class TrackCachePartitionRepository {
+
+    private static final String PREFIX = "tracks_cache_p";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final String DEFAULT_PARTITION = "tracks_cache_default";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${stylisten.retention.partition-lock-timeout-ms:5000}")
+    private Long lockTimeoutMs;
+
+    public List<String> findPartitionNames() {
+        return jdbcTemplate.queryForList(
+            "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = 'tracks_cache' AND c.relname LIKE 'tracks_cache\\_p%'",
+            String.class
+        );
+    }
+
+    //tabelas do prefixo que ficaram soltas (detach de uma versao antiga sem o drop)
+    public List<String> findDetachedPartitionNames() {
+        return jdbcTemplate.queryForList(
+            "SELECT c.relname FROM pg_class c " +
+            "WHERE c.relkind = 'r' AND c.relname LIKE 'tracks_cache\\_p%' " +
+            "AND pg_table_is_visible(c.oid) " +
+            "AND NOT EXISTS (SELECT 1 FROM pg_inherits i WHERE i.inhrelid = c.oid)",
+            String.class
+        );
+    }
+
+    //plays do mes que cairam na default (mes sem particao na epoca) impedem o CREATE ... PARTITION OF:
+    //a default e desanexada, as linhas vao pra particao nova e ela volta, tudo na mesma transacao
+    @Transactional
+    public void createPartition(YearMonth month) {
+        String name = partitionName(month);
+        jdbcTemplate.execute("SET LOCAL lock_timeout = '" + lockTimeoutMs + "ms'");
+        //todos os nos rodam a manutencao: um por vez, os outros ja encontram a particao criada
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(hashtext('tracks_cache_partitions'))");
+
+        if (exists(name)) {
+            return;
+        }
+
+        //nomes e limites gerados aqui, nunca vindos de entrada externa
+        String from = "'" + month.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC) + "'";
+        String to = "'" + month.plusMonths(1).atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC) + "'";
+        String inMonth = " WHERE played_at >= " + from + " AND played_at < " + to;
+
+        boolean inDefault = jdbcTemplate.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION + inMonth + ")",
+            Boolean.class
+        );
+
+        if (inDefault) {
+            jdbcTemplate.execute("ALTER TABLE tracks_cache DETACH PARTITION " + DEFAULT_PARTITION);
+        }
+
+        jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF tracks_cache " +
+            "FOR VALUES FROM (" + from + ") TO (" + to + ")");
+
+        if (inDefault) {
+            //direto na tabela pai: sem os CTEs de rollup, os contadores desses plays ja existem
+            int moved = jdbcTemplate.update("INSERT INTO tracks_cache SELECT * FROM " + DEFAULT_PARTITION + inMonth);
+            jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + inMonth);
+            jdbcTemplate.execute("ALTER TABLE tracks_cache ATTACH PARTITION " + DEFAULT_PARTITION + " DEFAULT");
+            log.info("Movidos {} plays da partição default para {}", moved, name);
+        }
+    }
+
+    private boolean exists(String partitionName) {
+        return jdbcTemplate.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM pg_class c WHERE c.relname = ? AND pg_table_is_visible(c.oid))",
+            Boolean.class,
+            partitionName
+        );
+    }
+
+    //DETACH sem CONCURRENTLY pega ACCESS EXCLUSIVE na tabela pai (CONCURRENTLY nao e permitido
+    //com a particao default). lock_timeout curto: se tem leitura longa na frente, desiste em vez de
+    //enfileirar e travar todo mundo atras dele; o proximo ciclo tenta de novo.
+    //detach e drop na mesma transacao: falha no drop desfaz o detach, nao sobra tabela solta
+    @Transactional
+    public void dropPartition(YearMonth month) {
+        String name = partitionName(month);
+        jdbcTemplate.execute("SET LOCAL lock_timeout = '" + lockTimeoutMs + "ms'");
+
+        boolean attached = jdbcTemplate.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE c.relname = ? AND pg_table_is_visible(c.oid))",
+            Boolean.class,
+            name
+        );
+        if (attached) {
+            jdbcTemplate.execute("ALTER TABLE tracks_cache DETACH PARTITION " + name);
+        }
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + name);
+    }
+
+    public static String partitionName(YearMonth month) {
+        return PREFIX + month.format(SUFFIX);
+    }
+
+    public static Optional<YearMonth> monthOf(String partitionName) {
+        if (!partitionName.startsWith(PREFIX)) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(YearMonth.parse(partitionName.substring(PREFIX.length()), SUFFIX));
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -12,7 +12,7 @@ import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface TrackCacheRepository extends JpaRepository<TrackCache, UUID> {
+public interface TrackCacheRepository extends JpaRepository<TrackCache, UUID>, TrackCacheRepositoryCustom {
     List<TrackCache> findByUserIdAndPlayedAtBetween(
         UUID userId, 
         Instant startDate, 
@@ -27,4 +27,39 @@ public interface TrackCacheRepository extends JpaRepository<TrackCache, UUID> {
     );
 
     void deleteByUserIdAndPlayedAtBefore(UUID userId, Instant before);
+
+    //soma sobre o rollup diario: custo proporcional a dias x generos, nao ao volume de plays
+    @Query(value = "SELECT g.name AS genre, SUM(d.play_count) AS plays " +
+           "FROM user_genre_daily d " +
+           "JOIN genres g ON g.id = d.genre_id " +
+           "WHERE d.user_id = :userId AND d.day >= :sinceDay " +
+           "GROUP BY g.name",
+           nativeQuery = true)
+    List<GenreCount> countGenresSince(
+        @Param("userId") UUID userId,
+        @Param("sinceDay") LocalDate sinceDay
+    );
+
+    //leitura O(generos do usuario): o score salvo so e decaido ate agora (com a taxa dele), sem varrer plays
+    @Query(value = "SELECT g.name AS genre, " +
+           "d.score * exp(-d.decay_rate * GREATEST(CAST(EXTRACT(EPOCH FROM (now() - d.updated_at)) " +
+           "AS double precision), 0)) AS score " +
+           "FROM user_genre_decay d " +
+           "JOIN genres g ON g.id = d.genre_id " +
+           "WHERE d.user_id = :userId AND d.updated_at >= :since",
+           nativeQuery = true)
+    List<GenreScore> findDecayedGenreScores(
+        @Param("userId") UUID userId,
+        @Param("since") Instant since
+    );
+
+    interface GenreScore {
+        String getGenre();
+        Double getScore();
+    }
+
+    interface GenreCount {
+        String getGenre();
+        Long getPlays();
+    }
 }
\ No newline at end of file
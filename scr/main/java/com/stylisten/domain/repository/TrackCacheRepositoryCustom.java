@@ -0,0 +1,22 @@
+package com.stylisten.domain.repository;
+
+import com.stylisten.domain.entity.*;
+import java.util.List;
+import java.util.UUID;
+
+public interface TrackCacheRepositoryCustom {
+    //retorna quantos plays eram novos (duplicados sao ignorados)
+    int insertAllIgnoringDuplicates(UUID userId, List<TrackCache> tracks);
+
+    //backfill/importacao: COPY numa staging e merge com o mesmo ON CONFLICT. o sync normal
+    //fica no insertAllIgnoringDuplicates, pagina a pagina
+    int bulkImport(UUID userId, Iterable<TrackCache> tracks);
+
+    //refaz a partir dos plays os contadores gravados com outra meia-vida; retorna quantos usuarios
+    int rebuildStaleGenreDecay();
+
+    //lambda do decaimento exponencial: score cai pela metade a cada meia-vida
+    static double decayRatePerSecond(double halfLifeDays) {
+        return Math.log(2) / (halfLifeDays * 86400.0);
+    }
+}
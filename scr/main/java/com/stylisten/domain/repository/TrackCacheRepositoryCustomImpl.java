@@ -0,0 +1,317 @@
+package com.stylisten.domain.repository;
+
+import com.stylisten.domain.entity.*;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.UUID;
+
+@Slf4j
+public class TrackCacheRepositoryCustomImpl implements TrackCacheRepositoryCustom {
+
+    private static final int ROWS_PER_STATEMENT = 1000;
+
+    //um INSERT por lote: cada coluna vai como array e o unnest monta as linhas.
+    //feats vao como literal de array em texto ('{1,2}'): unnest de bigint[][] achataria tudo
+    private static final String INSERT_SQL =
+        "INSERT INTO tracks_cache " +
+        "(id, spotify_track_id, user_id, played_at, artist_id, featured_artist_ids, track_name, created_at) " +
+        "SELECT gen_random_uuid(), t.track_id, ?, CAST(t.played_at AS timestamptz), " +
+        "t.artist_id, CAST(t.featured_artist_ids AS bigint[]), t.track_name, now() " +
+        "FROM unnest(CAST(? AS text[]), CAST(? AS text[]), CAST(? AS bigint[]), CAST(? AS text[]), " +
+        "CAST(? AS text[])) " +
+        "AS t(track_id, played_at, artist_id, featured_artist_ids, track_name) " +
+        "ON CONFLICT (user_id, spotify_track_id, played_at) DO NOTHING";
+
+    //temp table vive na sessao: fica na conexao do pool e e truncada a cada carga
+    private static final String CREATE_STAGING_SQL =
+        "CREATE TEMP TABLE IF NOT EXISTS tracks_cache_staging (" +
+        "spotify_track_id text, played_at timestamptz, artist_id bigint, " +
+        "featured_artist_ids bigint[], track_name text)";
+
+    private static final String COPY_SQL =
+        "COPY tracks_cache_staging (spotify_track_id, played_at, artist_id, featured_artist_ids, track_name) " +
+        "FROM STDIN WITH (FORMAT csv)";
+
+    private static final String MERGE_SQL =
+        "INSERT INTO tracks_cache " +
+        "(id, spotify_track_id, user_id, played_at, artist_id, featured_artist_ids, track_name, created_at) " +
+        "SELECT gen_random_uuid(), s.spotify_track_id, ?, s.played_at, " +
+        "s.artist_id, s.featured_artist_ids, s.track_name, now() " +
+        "FROM tracks_cache_staging s " +
+        "ON CONFLICT (user_id, spotify_track_id, played_at) DO NOTHING";
+
+    private static final int COPY_FLUSH_BYTES = 64 * 1024;
+
+    //generos de todos os artistas do play, uma vez cada (feat com o mesmo genero nao dobra)
+    private static final String PLAY_GENRES_SQL =
+        "SELECT DISTINCT p.id, p.user_id, p.played_at, ag.genre_id " +
+        "FROM %s p " +
+        "CROSS JOIN LATERAL unnest(array_prepend(p.artist_id, " +
+        "  COALESCE(p.featured_artist_ids, CAST('{}' AS bigint[])))) AS a(artist_id) " +
+        "JOIN artist_genres ag ON ag.artist_id = a.artist_id";
+
+    //lote vira um score no instante do play mais recente de cada (usuario, genero)
+    private static final String DECAY_SCORES_SQL =
+        "SELECT p.user_id, p.genre_id, " +
+        "SUM(exp(-%1$s * CAST(EXTRACT(EPOCH FROM (p.last_played - p.played_at)) AS double precision))), " +
+        "MAX(p.last_played), CAST(%1$s AS double precision) " +
+        "FROM (" +
+        "  SELECT pg.user_id, pg.genre_id, pg.played_at, " +
+        "  MAX(pg.played_at) OVER (PARTITION BY pg.user_id, pg.genre_id) AS last_played " +
+        "  FROM %2$s pg" +
+        ") p " +
+        "GROUP BY p.user_id, p.genre_id";
+
+    //contadores gravados com outra taxa (meia-vida mudou na config) sao refeitos a partir dos plays
+    private static final String DELETE_STALE_DECAY_SQL =
+        "DELETE FROM user_genre_decay " +
+        "WHERE user_id IN (SELECT user_id FROM user_genre_decay WHERE abs(decay_rate - ?) > ?) " +
+        "RETURNING user_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final double decayRate;
+    private final String insertSql;
+    private final String mergeSql;
+    private final String rebuildDecaySql;
+
+    public TrackCacheRepositoryCustomImpl(
+        JdbcTemplate jdbcTemplate,
+        @Value("${stylisten.profile.decay-half-life-days:14}") double decayHalfLifeDays
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+
+        this.decayRate = TrackCacheRepositoryCustom.decayRatePerSecond(decayHalfLifeDays);
+        this.insertSql = withGenreRollups(INSERT_SQL, decayRate);
+        this.mergeSql = withGenreRollups(MERGE_SQL, decayRate);
+        this.rebuildDecaySql =
+            "INSERT INTO user_genre_decay (user_id, genre_id, score, updated_at, decay_rate) " +
+            String.format(DECAY_SCORES_SQL, Double.toString(decayRate),
+                "(" + String.format(PLAY_GENRES_SQL,
+                    "(SELECT * FROM tracks_cache WHERE user_id = ANY(?))") + ")");
+    }
+
+    @Override
+    public int rebuildStaleGenreDecay() {
+        //um no por vez; os outros esperam e ja encontram tudo na taxa nova
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(hashtext('user_genre_decay_rebuild'))");
+
+        //tolerancia relativa: o valor do changeset vem do ln() do banco, o da config do Math.log
+        List<UUID> users = jdbcTemplate.queryForList(DELETE_STALE_DECAY_SQL, UUID.class, decayRate, decayRate * 1e-9)
+            .stream()
+            .distinct()
+            .toList();
+
+        if (users.isEmpty()) {
+            return 0;
+        }
+
+        jdbcTemplate.execute(rebuildDecaySql, (PreparedStatement ps) -> {
+            Array ids = ps.getConnection().createArrayOf("uuid", users.toArray());
+            try {
+                ps.setArray(1, ids);
+                return ps.executeUpdate();
+            } finally {
+                ids.free();
+            }
+        });
+        return users.size();
+    }
+
+    @Override
+    public int insertAllIgnoringDuplicates(UUID userId, List<TrackCache> tracks) {
+        int inserted = 0;
+
+        for (int from = 0; from < tracks.size(); from += ROWS_PER_STATEMENT) {
+            List<TrackCache> chunk = tracks.subList(from, Math.min(from + ROWS_PER_STATEMENT, tracks.size()));
+            inserted += insertChunk(userId, chunk);
+        }
+
+        return inserted;
+    }
+
+    private int insertChunk(UUID userId, List<TrackCache> chunk) {
+        int size = chunk.size();
+        String[] trackIds = new String[size];
+        String[] playedAts = new String[size];
+        Long[] artistIds = new Long[size];
+        String[] featuredArtistIds = new String[size];
+        String[] trackNames = new String[size];
+
+        for (int i = 0; i < size; i++) {
+            TrackCache track = chunk.get(i);
+            trackIds[i] = track.getSpotifyTrackId();
+            //ISO-8601 com Z, sem depender do timezone da sessao
+            playedAts[i] = track.getPlayedAt().toString();
+            artistIds[i] = artistId(track);
+            featuredArtistIds[i] = arrayLiteral(track.getFeaturedArtistIds());
+            trackNames[i] = track.getTrackName();
+        }
+
+        return jdbcTemplate.execute(insertSql, (PreparedStatement ps) -> {
+            Array[] arrays = {
+                ps.getConnection().createArrayOf("text", trackIds),
+                ps.getConnection().createArrayOf("text", playedAts),
+                ps.getConnection().createArrayOf("int8", artistIds),
+                ps.getConnection().createArrayOf("text", featuredArtistIds),
+                ps.getConnection().createArrayOf("text", trackNames)
+            };
+
+            try {
+                ps.setObject(1, userId);
+                for (int i = 0; i < arrays.length; i++) {
+                    ps.setArray(i + 2, arrays[i]);
+                }
+                return insertedCount(ps);
+            } finally {
+                for (Array array : arrays) {
+                    array.free();
+                }
+            }
+        });
+    }
+
+    @Override
+    public int bulkImport(UUID userId, Iterable<TrackCache> tracks) {
+        //mesma conexao da transacao corrente, senao a temp table some entre os passos
+        Integer inserted = jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING_SQL);
+                statement.execute("TRUNCATE tracks_cache_staging");
+            }
+
+            int copied = copyToStaging(connection, tracks);
+
+            try (PreparedStatement merge = connection.prepareStatement(mergeSql);
+                 Statement statement = connection.createStatement()) {
+                merge.setObject(1, userId);
+                int rows = insertedCount(merge);
+                statement.execute("TRUNCATE tracks_cache_staging");
+                log.info("COPY de {} plays para o usuário {}: {} novos", copied, userId, rows);
+                return rows;
+            }
+        });
+
+        return inserted != null ? inserted : 0;
+    }
+
+    private int copyToStaging(Connection connection, Iterable<TrackCache> tracks) throws SQLException {
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_SQL);
+        StringBuilder buffer = new StringBuilder(COPY_FLUSH_BYTES);
+        int rows = 0;
+
+        try {
+            for (TrackCache track : tracks) {
+                rows++;
+                appendCsv(buffer, track.getSpotifyTrackId()).append(',');
+                appendCsv(buffer, track.getPlayedAt().toString()).append(',');
+                Long artistId = artistId(track);
+                appendCsv(buffer, artistId != null ? artistId.toString() : null).append(',');
+                appendCsv(buffer, arrayLiteral(track.getFeaturedArtistIds())).append(',');
+                appendCsv(buffer, track.getTrackName()).append('\n');
+
+                if (buffer.length() >= COPY_FLUSH_BYTES) {
+                    writeToCopy(copyIn, buffer);
+                }
+            }
+
+            writeToCopy(copyIn, buffer);
+            copyIn.endCopy();
+            return rows;
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static void writeToCopy(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    //so plays realmente novos (RETURNING ignora os duplicados) somam no rollup diario
+    //e nos contadores com decaimento; decayRate vem da config, nao de input do usuario
+    private static String withGenreRollups(String insertSql, double decayRate) {
+        String rate = Double.toString(decayRate);
+
+        return "WITH inserted AS (" + insertSql +
+            " RETURNING id, user_id, played_at, artist_id, featured_artist_ids), " +
+            "play_genres AS (" + String.format(PLAY_GENRES_SQL, "inserted") + "), " +
+            "rolled AS (" +
+            "  INSERT INTO user_genre_daily (user_id, day, genre_id, play_count) " +
+            "  SELECT pg.user_id, CAST(pg.played_at AT TIME ZONE 'UTC' AS date), pg.genre_id, COUNT(*) " +
+            "  FROM play_genres pg " +
+            "  GROUP BY 1, 2, 3 " +
+            "  ON CONFLICT (user_id, day, genre_id) " +
+            "  DO UPDATE SET play_count = user_genre_daily.play_count + EXCLUDED.play_count" +
+            "), " +
+            //o contador salvo (decaido com a propria taxa) e o do lote sao trazidos pro mais novo
+            //dos dois instantes e somados: O(1) por (usuario, genero)
+            "decayed AS (" +
+            "  INSERT INTO user_genre_decay (user_id, genre_id, score, updated_at, decay_rate) " +
+            String.format(DECAY_SCORES_SQL, rate, "play_genres") +
+            "  ON CONFLICT (user_id, genre_id) DO UPDATE SET " +
+            "  score = user_genre_decay.score * exp(-user_genre_decay.decay_rate * GREATEST(CAST(EXTRACT(EPOCH FROM " +
+            "    (EXCLUDED.updated_at - user_genre_decay.updated_at)) AS double precision), 0)) " +
+            "  + EXCLUDED.score * exp(-" + rate + " * GREATEST(CAST(EXTRACT(EPOCH FROM " +
+            "    (user_genre_decay.updated_at - EXCLUDED.updated_at)) AS double precision), 0)), " +
+            "  updated_at = GREATEST(user_genre_decay.updated_at, EXCLUDED.updated_at), " +
+            "  decay_rate = EXCLUDED.decay_rate" +
+            ") " +
+            "SELECT COUNT(*) FROM inserted";
+    }
+
+    private static int insertedCount(PreparedStatement ps) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static Long artistId(TrackCache track) {
+        return track.getArtist() != null ? track.getArtist().getId() : null;
+    }
+
+    private static String arrayLiteral(Long[] ids) {
+        if (ids == null || ids.length == 0) {
+            return null;
+        }
+        StringJoiner literal = new StringJoiner(",", "{", "}");
+        for (Long id : ids) {
+            literal.add(id.toString());
+        }
+        return literal.toString();
+    }
+
+    //CSV do COPY: campo vazio sem aspas = NULL, com aspas = string (aspas internas duplicadas)
+    private static StringBuilder appendCsv(StringBuilder buffer, String value) {
+        if (value == null) {
+            return buffer;
+        }
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                buffer.append('"');
+            }
+            buffer.append(c);
+        }
+        return buffer.append('"');
+    }
+}
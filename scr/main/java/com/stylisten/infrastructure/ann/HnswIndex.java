@@ -0,0 +1,379 @@
+package com.stylisten.infrastructure.ann;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//HNSW (Malkov & Yashunin) sobre vetores esparsos normalizados, similaridade = cosseno.
+//delete e tombstone: o no continua navegavel mas some dos resultados ate o proximo compacted()
+public class HnswIndex {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final int m;
+    private final int maxLinksLevelZero;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<UUID, Integer> nodesByKey = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private int deletedCount;
+
+    public HnswIndex(int m, int efConstruction) {
+        this(m, efConstruction, new Random());
+    }
+
+    HnswIndex(int m, int efConstruction, Random random) {
+        this.m = m;
+        this.maxLinksLevelZero = 2 * m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.random = random;
+    }
+
+    public void upsert(UUID key, SparseVector vector) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = nodesByKey.get(key);
+            if (existing != null) {
+                if (nodes.get(existing).vector.sameAs(vector)) {
+                    return;
+                }
+                tombstone(existing);
+            }
+            if (!vector.isEmpty()) {
+                insert(key, vector);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(UUID key) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = nodesByKey.get(key);
+            if (existing == null) {
+                return false;
+            }
+            tombstone(existing);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Neighbor> search(SparseVector query, int k, int ef) {
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || query.isEmpty() || k <= 0) {
+                return Collections.emptyList();
+            }
+
+            int current = entryPoint;
+            for (int level = maxLevel; level > 0; level--) {
+                current = searchLayer(query, current, 1, level).get(0).node;
+            }
+
+            List<Neighbor> result = new ArrayList<>(k);
+            for (Candidate candidate : searchLayer(query, current, Math.max(ef, k), 0)) {
+                Node node = nodes.get(candidate.node);
+                if (!node.deleted) {
+                    result.add(new Neighbor(node.key, candidate.similarity));
+                    if (result.size() == k) {
+                        break;
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<UUID, SparseVector> liveVectors() {
+        lock.readLock().lock();
+        try {
+            Map<UUID, SparseVector> vectors = new HashMap<>(nodesByKey.size());
+            nodesByKey.forEach((key, node) -> vectors.put(key, nodes.get(node).vector));
+            return vectors;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodesByKey.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //reconstroi so com os nos vivos: libera memoria dos tombstones e refaz as arestas
+    public HnswIndex compacted() {
+        HnswIndex compacted = new HnswIndex(m, efConstruction, random);
+        liveVectors().forEach(compacted::upsert);
+        return compacted;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(m);
+            out.writeInt(efConstruction);
+            out.writeInt(entryPoint);
+            out.writeInt(maxLevel);
+            out.writeInt(nodes.size());
+
+            for (Node node : nodes) {
+                out.writeLong(node.key.getMostSignificantBits());
+                out.writeLong(node.key.getLeastSignificantBits());
+                out.writeBoolean(node.deleted);
+                out.writeInt(node.vector.indexes().length);
+                for (int i = 0; i < node.vector.indexes().length; i++) {
+                    out.writeInt(node.vector.indexes()[i]);
+                    out.writeFloat(node.vector.values()[i]);
+                }
+                out.writeInt(node.links.length);
+                for (int level = 0; level < node.links.length; level++) {
+                    out.writeInt(node.linkCounts[level]);
+                    for (int i = 0; i < node.linkCounts[level]; i++) {
+                        out.writeInt(node.links[level][i]);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static HnswIndex readFrom(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Formato de snapshot HNSW desconhecido: " + version);
+        }
+
+        HnswIndex index = new HnswIndex(in.readInt(), in.readInt());
+        index.entryPoint = in.readInt();
+        index.maxLevel = in.readInt();
+        int nodeCount = in.readInt();
+
+        for (int id = 0; id < nodeCount; id++) {
+            UUID key = new UUID(in.readLong(), in.readLong());
+            boolean deleted = in.readBoolean();
+
+            int dimensions = in.readInt();
+            int[] indexes = new int[dimensions];
+            float[] values = new float[dimensions];
+            for (int i = 0; i < dimensions; i++) {
+                indexes[i] = in.readInt();
+                values[i] = in.readFloat();
+            }
+
+            Node node = new Node(key, new SparseVector(indexes, values), in.readInt() - 1, index.m, index.maxLinksLevelZero);
+            for (int level = 0; level < node.links.length; level++) {
+                node.linkCounts[level] = in.readInt();
+                for (int i = 0; i < node.linkCounts[level]; i++) {
+                    node.links[level][i] = in.readInt();
+                }
+            }
+
+            node.deleted = deleted;
+            index.nodes.add(node);
+            if (deleted) {
+                index.deletedCount++;
+            } else {
+                index.nodesByKey.put(key, id);
+            }
+        }
+        return index;
+    }
+
+    private void insert(UUID key, SparseVector vector) {
+        int level = randomLevel();
+        int id = nodes.size();
+        Node node = new Node(key, vector, level, m, maxLinksLevelZero);
+        nodes.add(node);
+        nodesByKey.put(key, id);
+
+        if (entryPoint < 0) {
+            entryPoint = id;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = searchLayer(vector, current, 1, l).get(0).node;
+        }
+
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Candidate> found = searchLayer(vector, current, efConstruction, l);
+            for (Candidate neighbor : selectNeighbors(found, m)) {
+                addLink(id, neighbor.node, l);
+                addLink(neighbor.node, id, l);
+            }
+            current = found.get(0).node;
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = id;
+        }
+    }
+
+    private void tombstone(int id) {
+        Node node = nodes.get(id);
+        node.deleted = true;
+        nodesByKey.remove(node.key, id);
+        deletedCount++;
+    }
+
+    //resultado ordenado do mais similar pro menos similar
+    private List<Candidate> searchLayer(SparseVector query, int entry, int ef, int level) {
+        BitSet visited = new BitSet(nodes.size());
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.reverseOrder());
+        PriorityQueue<Candidate> results = new PriorityQueue<>();
+
+        Candidate start = new Candidate(entry, query.dot(nodes.get(entry).vector));
+        visited.set(entry);
+        candidates.add(start);
+        results.add(start);
+
+        while (!candidates.isEmpty()) {
+            Candidate closest = candidates.poll();
+            if (results.size() >= ef && closest.similarity < results.peek().similarity) {
+                break;
+            }
+
+            Node node = nodes.get(closest.node);
+            for (int i = 0; i < node.linkCounts[level]; i++) {
+                int neighbor = node.links[level][i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+
+                Candidate candidate = new Candidate(neighbor, query.dot(nodes.get(neighbor).vector));
+                if (results.size() < ef || candidate.similarity > results.peek().similarity) {
+                    candidates.add(candidate);
+                    results.add(candidate);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Candidate> ordered = new ArrayList<>(results);
+        ordered.sort(Comparator.reverseOrder());
+        return ordered;
+    }
+
+    //heuristica do paper: descarta vizinho mais parecido com um ja escolhido do que com a base,
+    //depois completa com os descartados pra nao deixar o no com poucas arestas
+    private List<Candidate> selectNeighbors(List<Candidate> ordered, int max) {
+        List<Candidate> selected = new ArrayList<>(max);
+        List<Candidate> pruned = new ArrayList<>();
+
+        for (Candidate candidate : ordered) {
+            if (selected.size() >= max) {
+                break;
+            }
+            SparseVector vector = nodes.get(candidate.node).vector;
+            boolean diverse = true;
+            for (Candidate chosen : selected) {
+                if (vector.dot(nodes.get(chosen.node).vector) > candidate.similarity) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected.add(candidate);
+            } else {
+                pruned.add(candidate);
+            }
+        }
+
+        for (int i = 0; i < pruned.size() && selected.size() < max; i++) {
+            selected.add(pruned.get(i));
+        }
+        return selected;
+    }
+
+    private void addLink(int from, int to, int level) {
+        Node node = nodes.get(from);
+        int[] links = node.links[level];
+
+        if (node.linkCounts[level] < links.length) {
+            links[node.linkCounts[level]++] = to;
+            return;
+        }
+
+        //lista cheia: reescolhe os vizinhos entre os atuais + o novo
+        List<Candidate> candidates = new ArrayList<>(links.length + 1);
+        for (int neighbor : links) {
+            candidates.add(new Candidate(neighbor, node.vector.dot(nodes.get(neighbor).vector)));
+        }
+        candidates.add(new Candidate(to, node.vector.dot(nodes.get(to).vector)));
+        candidates.sort(Comparator.reverseOrder());
+
+        List<Candidate> selected = selectNeighbors(candidates, links.length);
+        for (int i = 0; i < selected.size(); i++) {
+            links[i] = selected.get(i).node;
+        }
+        node.linkCounts[level] = selected.size();
+    }
+
+    private int randomLevel() {
+        return (int) Math.floor(-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+    }
+
+    public record Neighbor(UUID key, float similarity) {
+    }
+
+    private record Candidate(int node, float similarity) implements Comparable<Candidate> {
+        @Override
+        public int compareTo(Candidate other) {
+            return Float.compare(similarity, other.similarity);
+        }
+    }
+
+    private static final class Node {
+        private final UUID key;
+        private final SparseVector vector;
+        private final int[][] links;
+        private final int[] linkCounts;
+        private boolean deleted;
+
+        private Node(UUID key, SparseVector vector, int level, int m, int maxLinksLevelZero) {
+            this.key = key;
+            this.vector = vector;
+            this.links = new int[level + 1][];
+            this.linkCounts = new int[level + 1];
+            for (int l = 0; l <= level; l++) {
+                links[l] = new int[l == 0 ? maxLinksLevelZero : m];
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.stylisten.infrastructure.ann;
+
+import java.util.Arrays;
+import java.util.Map;
+
+//vetor esparso normalizado (norma 1): cosseno vira produto escalar
+public record SparseVector(int[] indexes, float[] values) {
+
+    public static final SparseVector EMPTY = new SparseVector(new int[0], new float[0]);
+
+    public static SparseVector normalized(Map<Integer, Float> entries) {
+        int[] indexes = entries.entrySet().stream()
+            .filter(entry -> entry.getValue() != null && entry.getValue() != 0f)
+            .mapToInt(Map.Entry::getKey)
+            .sorted()
+            .toArray();
+
+        float[] values = new float[indexes.length];
+        double squares = 0.0;
+        for (int i = 0; i < indexes.length; i++) {
+            values[i] = entries.get(indexes[i]);
+            squares += (double) values[i] * values[i];
+        }
+
+        if (squares == 0.0) {
+            return EMPTY;
+        }
+
+        float norm = (float) Math.sqrt(squares);
+        for (int i = 0; i < values.length; i++) {
+            values[i] /= norm;
+        }
+        return new SparseVector(indexes, values);
+    }
+
+    //merge dos indices ordenados
+    public float dot(SparseVector other) {
+        float sum = 0f;
+        int i = 0;
+        int j = 0;
+        while (i < indexes.length && j < other.indexes.length) {
+            if (indexes[i] == other.indexes[j]) {
+                sum += values[i++] * other.values[j++];
+            } else if (indexes[i] < other.indexes[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return sum;
+    }
+
+    public boolean isEmpty() {
+        return indexes.length == 0;
+    }
+
+    public boolean sameAs(SparseVector other) {
+        return Arrays.equals(indexes, other.indexes) && Arrays.equals(values, other.values);
+    }
+}
@@ -0,0 +1,142 @@
+package com.stylisten.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+@Slf4j
+@Component
+public class ArtistGenreCache {
+
+    private static final String KEY_PREFIX = "stylisten:artist-genres:";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final Cache<String, List<String>> localCache;
+    private final Duration redisTtl;
+
+    private final LongAdder localHits = new LongAdder();
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ArtistGenreCache(
+        RedisTemplate<String, Object> redisTemplate,
+        @Value("${spotify.cache.artist-genres.local-max-size:50000}") long localMaxSize,
+        @Value("${spotify.cache.artist-genres.local-ttl-minutes:30}") long localTtlMinutes,
+        @Value("${spotify.cache.artist-genres.redis-ttl-hours:168}") long redisTtlHours
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.redisTtl = Duration.ofHours(redisTtlHours);
+        this.localCache = Caffeine.newBuilder()
+            .maximumSize(localMaxSize)
+            .expireAfterWrite(Duration.ofMinutes(localTtlMinutes))
+            .build();
+    }
+
+    //lista vazia = artista conhecido sem generos (miss negativo), ausente no mapa = nao cacheado
+    public Map<String, List<String>> getAll(Collection<String> artistIds) {
+        if (artistIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, List<String>> found = new HashMap<>(localCache.getAllPresent(artistIds));
+        localHits.add(found.size());
+
+        List<String> remaining = artistIds.stream()
+            .filter(id -> !found.containsKey(id))
+            .distinct()
+            .toList();
+
+        if (!remaining.isEmpty()) {
+            Map<String, List<String>> fromRedis = getAllFromRedis(remaining);
+            redisHits.add(fromRedis.size());
+            misses.add(remaining.size() - fromRedis.size());
+
+            localCache.putAll(fromRedis);
+            found.putAll(fromRedis);
+        }
+
+        return found;
+    }
+
+    public void putAll(Map<String, List<String>> artistGenres) {
+        if (artistGenres.isEmpty()) {
+            return;
+        }
+
+        localCache.putAll(artistGenres);
+
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings({"unchecked", "rawtypes"})
+                public Object execute(RedisOperations operations) {
+                    artistGenres.forEach((artistId, genres) ->
+                        operations.opsForValue().set(KEY_PREFIX + artistId, genres, redisTtl));
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            //redis fora do ar nao pode derrubar o sync, fica so no cache local
+            log.warn("Erro ao gravar gêneros de artistas no Redis: {}", e.getMessage());
+        }
+    }
+
+    public Stats getStats() {
+        return Stats.builder()
+            .localHits(localHits.sum())
+            .redisHits(redisHits.sum())
+            .misses(misses.sum())
+            .localSize(localCache.estimatedSize())
+            .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, List<String>> getAllFromRedis(List<String> artistIds) {
+        Map<String, List<String>> found = new HashMap<>();
+
+        try {
+            List<String> keys = artistIds.stream()
+                .map(id -> KEY_PREFIX + id)
+                .toList();
+
+            List<Object> values = redisTemplate.opsForValue().multiGet(keys);
+            if (values == null) {
+                return found;
+            }
+
+            for (int i = 0; i < artistIds.size(); i++) {
+                Object value = values.get(i);
+                if (value instanceof List<?> genres) {
+                    found.put(artistIds.get(i), (List<String>) genres);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Erro ao ler gêneros de artistas do Redis: {}", e.getMessage());
+        }
+
+        return found;
+    }
+
+    @Getter @Builder
+    public static class Stats {
+        private long localHits;
+        private long redisHits;
+        private long misses;
+        private long localSize;
+
+        public double getHitRate() {
+            long total = localHits + redisHits + misses;
+            return total == 0 ? 0.0 : (double) (localHits + redisHits) / total;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.stylisten.infrastructure.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+@Slf4j
+@Component
+public class SpotifyTokenCache {
+
+    private static final String KEY_PREFIX = "stylisten:spotify-token:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final Cache<UUID, CachedToken> localCache;
+
+    public SpotifyTokenCache(
+        StringRedisTemplate redisTemplate,
+        @Value("${spotify.token.local-max-size:10000}") long localMaxSize
+    ) {
+        this.redisTemplate = redisTemplate;
+        //token do Spotify vive 1h, nada aqui dura mais que isso
+        this.localCache = Caffeine.newBuilder()
+            .maximumSize(localMaxSize)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
+    }
+
+    //so devolve token que ainda vale depois de validUntil
+    public Optional<String> get(UUID accountId, Instant validUntil) {
+        CachedToken local = localCache.getIfPresent(accountId);
+        if (local != null && local.expiresAt().isAfter(validUntil)) {
+            return Optional.of(local.accessToken());
+        }
+
+        try {
+            String value = redisTemplate.opsForValue().get(KEY_PREFIX + accountId);
+            if (value != null) {
+                int separator = value.indexOf(':');
+                CachedToken cached = new CachedToken(
+                    value.substring(separator + 1),
+                    Instant.ofEpochMilli(Long.parseLong(value.substring(0, separator)))
+                );
+
+                localCache.put(accountId, cached);
+                if (cached.expiresAt().isAfter(validUntil)) {
+                    return Optional.of(cached.accessToken());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Erro ao ler token do Redis para conta {}: {}", accountId, e.getMessage());
+        }
+
+        return Optional.empty();
+    }
+
+    public void put(UUID accountId, String accessToken, Instant expiresAt) {
+        localCache.put(accountId, new CachedToken(accessToken, expiresAt));
+
+        Duration ttl = Duration.between(Instant.now(), expiresAt);
+        if (ttl.isNegative() || ttl.isZero()) {
+            return;
+        }
+
+        try {
+            redisTemplate.opsForValue().set(
+                KEY_PREFIX + accountId,
+                expiresAt.toEpochMilli() + ":" + accessToken,
+                ttl
+            );
+        } catch (Exception e) {
+            log.warn("Erro ao gravar token no Redis para conta {}: {}", accountId, e.getMessage());
+        }
+    }
+
+    private record CachedToken(String accessToken, Instant expiresAt) {}
+}
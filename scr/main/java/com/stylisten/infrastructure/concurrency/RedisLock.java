@@ -0,0 +1,71 @@
+package com.stylisten.infrastructure.concurrency;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RedisLock {
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(200);
+
+    //so libera se o lock ainda for nosso (pode ter expirado e sido pego por outro no)
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+        "return redis.call('DEL', KEYS[1]) else return 0 end",
+        Long.class
+    );
+
+    private final StringRedisTemplate redisTemplate;
+
+    //vazio = outro no segura o lock; com Redis fora degrada pra lock so local
+    public Optional<String> tryLock(String key, Duration ttl) {
+        String token = UUID.randomUUID().toString();
+
+        try {
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(key, token, ttl);
+            return Boolean.TRUE.equals(acquired) ? Optional.of(token) : Optional.empty();
+        } catch (Exception e) {
+            log.warn("Redis indisponível para lock {}: {}", key, e.getMessage());
+            return Optional.of(token);
+        }
+    }
+
+    public void unlock(String key, String token) {
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(key), token);
+        } catch (Exception e) {
+            log.warn("Erro ao liberar lock {}: {}", key, e.getMessage());
+        }
+    }
+
+    public boolean awaitRelease(String key, Duration timeout) {
+        Instant deadline = Instant.now().plus(timeout);
+
+        try {
+            while (Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
+                if (Instant.now().isAfter(deadline)) {
+                    return false;
+                }
+                Thread.sleep(POLL_INTERVAL.toMillis());
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.warn("Erro ao aguardar lock {}: {}", key, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.stylisten.infrastructure.concurrency;
+
+import reactor.core.publisher.Mono;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+//chamadas concorrentes com a mesma chave compartilham uma unica execucao em andamento
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, Mono<V>> inFlightMonos = new ConcurrentHashMap<>();
+
+    public V execute(K key, Supplier<V> action) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+
+        if (existing != null) {
+            return await(existing);
+        }
+
+        //Throwable: um Error sem completar o future deixaria quem espera no join() preso pra sempre
+        try {
+            V result = action.get();
+            future.complete(result);
+            return result;
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    public Mono<V> executeMono(K key, Supplier<Mono<V>> action) {
+        return Mono.defer(() -> inFlightMonos.computeIfAbsent(key, k -> {
+            AtomicReference<Mono<V>> shared = new AtomicReference<>();
+            shared.set(action.get()
+                .doFinally(signal -> inFlightMonos.remove(k, shared.get()))
+                .cache());
+            return shared.get();
+        }));
+    }
+
+    private V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.stylisten.infrastructure.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.function.Supplier;
+
+//transacao readOnly vai pra replica; o resto (e quem pediu primario) vai pro primario.
+//precisa ficar atras de um LazyConnectionDataSourceProxy: o JpaTransactionManager pega a
+//conexao antes de marcar a transacao como readOnly
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route { PRIMARY, REPLICA }
+
+    private static final ThreadLocal<Boolean> PRIMARY_PINNED = new ThreadLocal<>();
+
+    public ReadReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    //forca o primario mesmo em transacao readOnly (read-your-writes)
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = PRIMARY_PINNED.get();
+        PRIMARY_PINNED.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_PINNED.remove();
+            } else {
+                PRIMARY_PINNED.set(previous);
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (Boolean.TRUE.equals(PRIMARY_PINNED.get())) {
+            return Route.PRIMARY;
+        }
+
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ?
+            Route.REPLICA : Route.PRIMARY;
+    }
+}
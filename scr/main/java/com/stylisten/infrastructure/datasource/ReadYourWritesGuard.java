@@ -0,0 +1,63 @@
+package com.stylisten.infrastructure.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+//logo depois de uma escrita do usuario, as leituras dele vao pro primario ate a replica alcancar
+@Slf4j
+@Component
+public class ReadYourWritesGuard {
+
+    private static final String KEY_PREFIX = "stylisten:read-your-writes:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final Cache<UUID, Boolean> recentWrites;
+    private final Duration window;
+
+    public ReadYourWritesGuard(
+        StringRedisTemplate redisTemplate,
+        @Value("${stylisten.datasource.read-your-writes-seconds:10}") long windowSeconds
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.window = Duration.ofSeconds(windowSeconds);
+        this.recentWrites = Caffeine.newBuilder()
+            .expireAfterWrite(window)
+            .maximumSize(100_000)
+            .build();
+    }
+
+    public void markWritten(UUID userId) {
+        recentWrites.put(userId, Boolean.TRUE);
+
+        //a proxima leitura pode cair em outra replica da API
+        try {
+            redisTemplate.opsForValue().set(KEY_PREFIX + userId, "1", window);
+        } catch (Exception e) {
+            log.warn("Redis indisponível para marcar escrita do usuário {}: {}", userId, e.getMessage());
+        }
+    }
+
+    public <T> T read(UUID userId, Supplier<T> query) {
+        return isSticky(userId) ? ReadReplicaRoutingDataSource.onPrimary(query) : query.get();
+    }
+
+    private boolean isSticky(UUID userId) {
+        if (recentWrites.getIfPresent(userId) != null) {
+            return true;
+        }
+
+        try {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(KEY_PREFIX + userId));
+        } catch (Exception e) {
+            //sem saber, le do primario: mais carga, mas nunca dado velho
+            return true;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.stylisten.infrastructure.spotify;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stylisten.api.dto.*;
+import com.stylisten.infrastructure.exception.SpotifyApiException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+//le o recently-played token a token, sem montar a arvore de DTOs (album, imagens, urls...)
+@Component
+public class RecentlyPlayedDecoder {
+
+    private final JsonFactory jsonFactory;
+
+    public RecentlyPlayedDecoder(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public SpotifyPlayRecordPage decode(DataBuffer buffer) {
+        try (InputStream input = buffer.asInputStream(true);
+             JsonParser parser = jsonFactory.createParser(input)) {
+            return readPage(parser);
+        } catch (IOException e) {
+            throw new SpotifyApiException("Resposta inválida do recently-played", e);
+        }
+    }
+
+    private SpotifyPlayRecordPage readPage(JsonParser parser) throws IOException {
+        List<SpotifyPlayRecord> items = null;
+        String nextUrl = null;
+
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            if ("items".equals(field) && value == JsonToken.START_ARRAY) {
+                items = new ArrayList<>();
+                //elemento null no meio do array nao pode encerrar a leitura
+                for (JsonToken item = parser.nextToken(); !endOfArray(item); item = parser.nextToken()) {
+                    if (item != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        continue;
+                    }
+                    SpotifyPlayRecord record = readItem(parser);
+                    if (record != null) {
+                        items.add(record);
+                    }
+                }
+            } else if ("next".equals(field)) {
+                nextUrl = value == JsonToken.VALUE_NULL ? null : parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return new SpotifyPlayRecordPage(items, nextUrl);
+    }
+
+    private SpotifyPlayRecord readItem(JsonParser parser) throws IOException {
+        String trackId = null;
+        String trackName = null;
+        Instant playedAt = null;
+        List<String> artistIds = new ArrayList<>();
+        List<String> artistNames = new ArrayList<>();
+        Map<String, String> artistNamesById = new LinkedHashMap<>();
+        Map<String, List<String>> artistGenres = new LinkedHashMap<>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            if ("played_at".equals(field) && value == JsonToken.VALUE_STRING) {
+                playedAt = Instant.parse(parser.getText());
+            } else if ("track".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String trackField = parser.currentName();
+                    JsonToken trackValue = parser.nextToken();
+
+                    if ("id".equals(trackField)) {
+                        trackId = textOrNull(parser, trackValue);
+                    } else if ("name".equals(trackField)) {
+                        trackName = textOrNull(parser, trackValue);
+                    } else if ("artists".equals(trackField) && trackValue == JsonToken.START_ARRAY) {
+                        //album tambem tem "artists", mas cai no skipChildren abaixo
+                        for (JsonToken artist = parser.nextToken(); !endOfArray(artist); artist = parser.nextToken()) {
+                            if (artist == JsonToken.START_OBJECT) {
+                                readArtist(parser, artistIds, artistNames, artistNamesById, artistGenres);
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        //track removida / episodio local: sem id nao da pra gravar
+        if (trackId == null || playedAt == null || artistNames.isEmpty()) {
+            return null;
+        }
+
+        return new SpotifyPlayRecord(
+            trackId,
+            trackName,
+            playedAt,
+            artistNames.get(0),
+            artistIds,
+            artistNamesById,
+            artistGenres.isEmpty() ? Collections.emptyMap() : artistGenres
+        );
+    }
+
+    private void readArtist(
+        JsonParser parser,
+        List<String> artistIds,
+        List<String> artistNames,
+        Map<String, String> artistNamesById,
+        Map<String, List<String>> artistGenres
+    ) throws IOException {
+        String id = null;
+        String name = null;
+        List<String> genres = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            if ("id".equals(field)) {
+                id = textOrNull(parser, value);
+            } else if ("name".equals(field)) {
+                name = textOrNull(parser, value);
+            } else if ("genres".equals(field) && value == JsonToken.START_ARRAY) {
+                genres = new ArrayList<>();
+                for (JsonToken genre = parser.nextToken(); !endOfArray(genre); genre = parser.nextToken()) {
+                    if (genre == JsonToken.VALUE_STRING) {
+                        genres.add(parser.getText());
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        artistNames.add(name);
+        if (id != null) {
+            artistIds.add(id);
+            artistNamesById.put(id, name);
+            if (genres != null && !genres.isEmpty()) {
+                artistGenres.put(id, genres);
+            }
+        }
+    }
+
+    private static String textOrNull(JsonParser parser, JsonToken token) throws IOException {
+        return token == JsonToken.VALUE_NULL ? null : parser.getText();
+    }
+
+    //null = fim do input no meio do array (resposta truncada)
+    private static boolean endOfArray(JsonToken token) throws IOException {
+        if (token == null) {
+            throw new IOException("Resposta terminou dentro de um array");
+        }
+        return token == JsonToken.END_ARRAY;
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Esperado " + expected + " mas veio " + actual);
+        }
+    }
+}
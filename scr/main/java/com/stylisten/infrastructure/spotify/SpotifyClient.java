@@ -1,152 +1,173 @@
 package com.stylisten.infrastructure.spotify;
 
 import com.stylisten.api.dto.*;
+import com.stylisten.infrastructure.concurrency.SingleFlight;
 import com.stylisten.infrastructure.exception.SpotifyApiException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @Slf4j
 @Component
 public class SpotifyClient {
 
+    private static final int MAX_ARTISTS_PER_REQUEST = 50;
+
     private final WebClient webClient;
+    private final SpotifyRateLimiter rateLimiter;
+    private final SpotifyResilience resilience;
+    private final RecentlyPlayedDecoder recentlyPlayedDecoder;
     private final String baseUrl;
+    private final int artistConcurrency;
+    private final int maxRecentlyPlayedPages;
+    private final SingleFlight<String, SpotifyArtist> artistRequests = new SingleFlight<>();
 
     public SpotifyClient(
         WebClient.Builder webClientBuilder,
-        @Value("${spotify.api.base-url}") String baseUrl
+        SpotifyRateLimiter rateLimiter,
+        SpotifyResilience resilience,
+        RecentlyPlayedDecoder recentlyPlayedDecoder,
+        @Value("${spotify.api.base-url}") String baseUrl,
+        @Value("${spotify.api.artist-concurrency:4}") int artistConcurrency,
+        @Value("${spotify.api.recently-played.max-pages:20}") int maxRecentlyPlayedPages
     ) {
+        this.rateLimiter = rateLimiter;
+        this.resilience = resilience;
+        this.recentlyPlayedDecoder = recentlyPlayedDecoder;
         this.baseUrl = baseUrl;
+        this.artistConcurrency = artistConcurrency;
+        this.maxRecentlyPlayedPages = maxRecentlyPlayedPages;
         this.webClient = webClientBuilder
             .baseUrl(baseUrl)
             .build();
     }
 
-    public SpotifyUserProfile getUserProfile(String accessToken) {
-        try {
-            return webClient.get()
+    // ========== API reativa ==========
+
+    public Mono<SpotifyUserProfile> getUserProfileReactive(String accessToken) {
+        return limited(webClient.get()
                 .uri("/me")
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
                 .retrieve()
-                .bodyToMono(SpotifyUserProfile.class)
-                .retryWhen(createRetrySpec())
-                .block();
-        } catch (WebClientResponseException e) {
-            log.error("Erro ao buscar perfil do usuário: {}", e.getMessage());
-            throw new SpotifyApiException("Falha ao buscar perfil do Spotify", e);
-        }
+                .bodyToMono(SpotifyUserProfile.class))
+            .retryWhen(createRetrySpec())
+            .onErrorMap(WebClientResponseException.class, e -> {
+                log.error("Erro ao buscar perfil do usuário: {}", e.getMessage());
+                return new SpotifyApiException("Falha ao buscar perfil do Spotify", e);
+            });
     }
 
-    public List<SpotifyPlayHistoryItem> getRecentlyPlayed(
-        String accessToken, 
-        Instant after, 
+    public Flux<List<SpotifyPlayRecord>> streamRecentlyPlayedPages(
+        String accessToken,
+        Instant after,
         Integer limit
     ) {
-        List<SpotifyPlayHistoryItem> allItems = new ArrayList<>();
-        String nextUrl = null;
-        
-        try {
-            do {
-                SpotifyRecentlyPlayedResponse response = fetchRecentlyPlayed(
-                    accessToken, 
-                    after, 
-                    limit, 
-                    nextUrl
-                );
-                
-                if (response != null && response.getItems() != null) {
-                    allItems.addAll(response.getItems());
-                    nextUrl = response.getNextUrl();
-                } else {
-                    break;
-                }
-                
-                //sem loopings infinitos
-                if (allItems.size() >= 1000) {
-                    log.warn("Limite de 1000 tracks alcançado, parando paginação");
-                    break;
-                }
-                
-            } while (nextUrl != null);
-            
-            return allItems;
-            
-        } catch (Exception e) {
-            log.error("Erro ao buscar histórico de reprodução: {}", e.getMessage());
-            throw new SpotifyApiException("Falha ao buscar histórico do Spotify", e);
-        }
+        //proxima pagina so e buscada quando o consumidor pede (backpressure)
+        return fetchRecentlyPlayed(accessToken, after, limit, null)
+            .expand(response -> hasNextPage(response) ?
+                fetchRecentlyPlayed(accessToken, after, limit, response.getNextUrl()) :
+                Mono.empty())
+            .takeWhile(response -> response.getItems() != null)
+            .map(SpotifyPlayRecordPage::getItems)
+            //sem loopings infinitos
+            .take(maxRecentlyPlayedPages)
+            .onErrorMap(e -> !(e instanceof SpotifyApiException), e -> {
+                log.error("Erro ao buscar histórico de reprodução: {}", e.getMessage());
+                return new SpotifyApiException("Falha ao buscar histórico do Spotify", e);
+            });
     }
 
-    private SpotifyRecentlyPlayedResponse fetchRecentlyPlayed(
-        String accessToken, 
-        Instant after, 
-        Integer limit,
-        String nextUrl
+    public Flux<SpotifyPlayRecord> streamRecentlyPlayed(
+        String accessToken,
+        Instant after,
+        Integer limit
     ) {
-        if (nextUrl != null && !nextUrl.isEmpty()) {
-            return webClient.get()
-                .uri(nextUrl.replace(baseUrl, ""))
+        return streamRecentlyPlayedPages(accessToken, after, limit)
+            .concatMapIterable(page -> page);
+    }
+
+    public Mono<SpotifyArtist> getArtistReactive(String accessToken, String artistId) {
+        //buscas concorrentes do mesmo artista compartilham a mesma requisicao
+        return artistRequests.executeMono(artistId, () -> limited(webClient.get()
+                .uri("/artists/{id}", artistId)
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
                 .retrieve()
-                .bodyToMono(SpotifyRecentlyPlayedResponse.class)
-                .retryWhen(createRetrySpec())
-                .block();
-        }
-        
-        return webClient.get()
-            .uri(uriBuilder -> uriBuilder
-                .path("/me/player/recently-played")
-                .queryParam("limit", limit != null ? limit : 50)
-                .queryParamIfPresent("after", 
-                    after != null ? 
-                    java.util.Optional.of(after.toEpochMilli()) : 
-                    java.util.Optional.empty()
-                )
-                .build())
-            .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
-            .retrieve()
-            .bodyToMono(SpotifyRecentlyPlayedResponse.class)
+                .bodyToMono(SpotifyArtist.class))
             .retryWhen(createRetrySpec())
+            .onErrorResume(WebClientResponseException.class, e -> {
+                log.warn("Erro ao buscar artista {}: {}", artistId, e.getMessage());
+                return Mono.empty();
+            }));
+    }
+
+    public Flux<SpotifyArtist> getArtistsReactive(String accessToken, Collection<String> artistIds) {
+        //endpoint /artists aceita no maximo 50 ids por chamada, lotes rodam em paralelo limitado
+        return Flux.fromIterable(partition(new ArrayList<>(artistIds)))
+            .flatMap(chunk -> fetchArtists(accessToken, chunk), artistConcurrency)
+            .concatMapIterable(SpotifyArtistsResponse::getArtists)
+            //ids invalidos voltam como null no array
+            .filter(Objects::nonNull);
+    }
+
+    // ========== API bloqueante ==========
+
+    public SpotifyUserProfile getUserProfile(String accessToken) {
+        return getUserProfileReactive(accessToken)
+            .contextWrite(SpotifyRateLimiter.currentPriorityContext())
+            .block();
+    }
+
+    public List<SpotifyPlayRecord> getRecentlyPlayed(
+        String accessToken,
+        Instant after,
+        Integer limit
+    ) {
+        return streamRecentlyPlayed(accessToken, after, limit)
+            .collectList()
+            .contextWrite(SpotifyRateLimiter.currentPriorityContext())
             .block();
     }
 
     public SpotifyArtist getArtist(String accessToken, String artistId) {
-        try {
-            return webClient.get()
-                .uri("/artists/{id}", artistId)
-                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
-                .retrieve()
-                .bodyToMono(SpotifyArtist.class)
-                .retryWhen(createRetrySpec())
-                .block();
-        } catch (WebClientResponseException e) {
-            log.warn("Erro ao buscar artista {}: {}", artistId, e.getMessage());
-            return null;
-        }
+        return getArtistReactive(accessToken, artistId)
+            .contextWrite(SpotifyRateLimiter.currentPriorityContext())
+            .block();
+    }
+
+    public List<SpotifyArtist> getArtists(String accessToken, Collection<String> artistIds) {
+        return getArtistsReactive(accessToken, artistIds)
+            .collectList()
+            .contextWrite(SpotifyRateLimiter.currentPriorityContext())
+            .block();
     }
 
     public Map<String, Object> refreshAccessToken(
-        String refreshToken, 
-        String clientId, 
+        String refreshToken,
+        String clientId,
         String clientSecret
     ) {
         try {
             return webClient.post()
                 .uri("https://accounts.spotify.com/api/token")
                 .contentType(MediaType.APPLICATION_FORM_URLENCODED)
-                .header(HttpHeaders.AUTHORIZATION, 
+                .header(HttpHeaders.AUTHORIZATION,
                     "Basic " + java.util.Base64.getEncoder()
                         .encodeToString((clientId + ":" + clientSecret).getBytes()))
                 .bodyValue("grant_type=refresh_token&refresh_token=" + refreshToken)
@@ -159,12 +180,104 @@ public class SpotifyClient {
         }
     }
 
+    private Mono<SpotifyPlayRecordPage> fetchRecentlyPlayed(
+        String accessToken,
+        Instant after,
+        Integer limit,
+        String nextUrl
+    ) {
+        if (nextUrl != null && !nextUrl.isEmpty()) {
+            return limited(DataBufferUtils.join(webClient.get()
+                    .uri(nextUrl.replace(baseUrl, ""))
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                    .retrieve()
+                    .bodyToFlux(DataBuffer.class)))
+                .retryWhen(createRetrySpec())
+                .map(recentlyPlayedDecoder::decode);
+        }
+
+        //corpo cru em vez de bodyToMono(DTO): o decoder so extrai os campos que o sync usa
+        return limited(DataBufferUtils.join(webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                    .path("/me/player/recently-played")
+                    .queryParam("limit", limit != null ? limit : 50)
+                    .queryParamIfPresent("after",
+                        after != null ?
+                        java.util.Optional.of(after.toEpochMilli()) :
+                        java.util.Optional.empty()
+                    )
+                    .build())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)))
+            .retryWhen(createRetrySpec())
+            .map(recentlyPlayedDecoder::decode);
+    }
+
+    private boolean hasNextPage(SpotifyPlayRecordPage response) {
+        return response.getItems() != null && response.getNextUrl() != null;
+    }
+
+    private Mono<SpotifyArtistsResponse> fetchArtists(String accessToken, List<String> chunk) {
+        return limited(webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                    .path("/artists")
+                    .queryParam("ids", String.join(",", chunk))
+                    .build())
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessToken)
+                .retrieve()
+                .bodyToMono(SpotifyArtistsResponse.class))
+            .retryWhen(createRetrySpec())
+            .filter(response -> response.getArtists() != null)
+            .onErrorResume(WebClientResponseException.class, e -> {
+                log.warn("Erro ao buscar lote de {} artistas: {}", chunk.size(), e.getMessage());
+                return Mono.empty();
+            });
+    }
+
+    private static List<List<String>> partition(List<String> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += MAX_ARTISTS_PER_REQUEST) {
+            chunks.add(ids.subList(from, Math.min(from + MAX_ARTISTS_PER_REQUEST, ids.size())));
+        }
+        return chunks;
+    }
+
+    //cada tentativa (inclusive retry) passa pelo limiter e pelo circuit breaker antes de sair
+    private <T> Mono<T> limited(Mono<T> request) {
+        return Mono.deferContextual(context ->
+                rateLimiter.acquire(SpotifyRateLimiter.priorityOf(context)))
+            .then(resilience.protect(request));
+    }
+
     private Retry createRetrySpec() {
         return Retry.backoff(3, Duration.ofSeconds(1))
             .filter(throwable -> throwable instanceof WebClientResponseException.TooManyRequests)
-            .doBeforeRetry(retrySignal -> 
-                log.warn("Retrying request due to rate limit, attempt: {}", 
-                    retrySignal.totalRetries() + 1)
-            );
+            .doBeforeRetry(retrySignal -> {
+                Duration retryAfter = parseRetryAfter((WebClientResponseException) retrySignal.failure());
+                if (retryAfter != null) {
+                    rateLimiter.pause(retryAfter);
+                }
+                log.warn("Retrying request due to rate limit, attempt: {}",
+                    retrySignal.totalRetries() + 1);
+            });
+    }
+
+    private Duration parseRetryAfter(WebClientResponseException e) {
+        String retryAfter = e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter == null) {
+            return null;
+        }
+
+        try {
+            return Duration.ofSeconds(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException ex) {
+            log.warn("Retry-After inválido recebido do Spotify: {}", retryAfter);
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,175 @@
+package com.stylisten.infrastructure.spotify;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+@Slf4j
+@Component
+public class SpotifyRateLimiter {
+
+    public enum Priority { INTERACTIVE, BACKGROUND }
+
+    private static final String BUCKET_KEY = "stylisten:spotify:rate-limit:bucket";
+    private static final String PAUSE_KEY = "stylisten:spotify:rate-limit:pause-until";
+    private static final String PRIORITY_CONTEXT_KEY = SpotifyRateLimiter.class.getName() + ".priority";
+
+    private static final ThreadLocal<Priority> CURRENT_PRIORITY =
+        ThreadLocal.withInitial(() -> Priority.INTERACTIVE);
+
+    //token bucket compartilhado entre replicas; retorna 0 se liberou ou ms de espera
+    private static final RedisScript<Long> TOKEN_BUCKET_SCRIPT = new DefaultRedisScript<>(
+        "local capacity = tonumber(ARGV[1]) " +
+        "local refill = tonumber(ARGV[2]) " +
+        "local now = tonumber(ARGV[3]) " +
+        "local reserve = tonumber(ARGV[4]) " +
+        "local pausedUntil = tonumber(redis.call('GET', KEYS[2]) or '0') " +
+        "if pausedUntil > now then return pausedUntil - now end " +
+        "local state = redis.call('HMGET', KEYS[1], 'tokens', 'ts') " +
+        "local tokens = tonumber(state[1]) or capacity " +
+        "local ts = tonumber(state[2]) or now " +
+        "tokens = math.min(capacity, tokens + math.max(0, now - ts) * refill) " +
+        "local wait = 0 " +
+        "if tokens - 1 >= reserve then tokens = tokens - 1 " +
+        "else wait = math.ceil((reserve + 1 - tokens) / refill) end " +
+        "redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now)) " +
+        "redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / refill) * 2) " +
+        "return wait",
+        Long.class
+    );
+
+    private final StringRedisTemplate redisTemplate;
+    private final int capacity;
+    private final double refillPerMilli;
+    private final double backgroundReserve;
+    private final LocalTokenBucket localBucket;
+
+    private volatile long pausedUntilMillis;
+
+    public SpotifyRateLimiter(
+        StringRedisTemplate redisTemplate,
+        @Value("${spotify.api.rate-limit.max-requests:100}") int maxRequests,
+        @Value("${spotify.api.rate-limit.window-seconds:60}") int windowSeconds,
+        @Value("${spotify.api.rate-limit.background-reserve:0.2}") double backgroundReserve
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.capacity = maxRequests;
+        this.refillPerMilli = (double) maxRequests / (windowSeconds * 1000.0);
+        this.backgroundReserve = backgroundReserve;
+        this.localBucket = new LocalTokenBucket(capacity, refillPerMilli);
+    }
+
+    // ========== Prioridade ==========
+
+    public static <T> T runWithPriority(Priority priority, Supplier<T> action) {
+        Priority previous = CURRENT_PRIORITY.get();
+        CURRENT_PRIORITY.set(priority);
+        try {
+            return action.get();
+        } finally {
+            CURRENT_PRIORITY.set(previous);
+        }
+    }
+
+    //pipelines reativos perdem o ThreadLocal, entao a prioridade viaja no Context do Reactor
+    public static Context currentPriorityContext() {
+        return Context.of(PRIORITY_CONTEXT_KEY, CURRENT_PRIORITY.get());
+    }
+
+    static Priority priorityOf(ContextView context) {
+        return context.getOrDefault(PRIORITY_CONTEXT_KEY, CURRENT_PRIORITY.get());
+    }
+
+    // ========== Controle de taxa ==========
+
+    public Mono<Void> acquire(Priority priority) {
+        return Mono.fromCallable(() -> tryAcquire(priority))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(waitMillis -> {
+                if (waitMillis <= 0) {
+                    return Mono.<Void>empty();
+                }
+                log.debug("Rate limit do Spotify: aguardando {}ms (prioridade {})", waitMillis, priority);
+                return Mono.delay(Duration.ofMillis(waitMillis))
+                    .then(Mono.defer(() -> acquire(priority)));
+            });
+    }
+
+    public void pause(Duration retryAfter) {
+        long until = System.currentTimeMillis() + retryAfter.toMillis();
+        if (until <= pausedUntilMillis) {
+            return;
+        }
+
+        pausedUntilMillis = until;
+        log.warn("Spotify retornou 429, pausando chamadas por {}s", retryAfter.toSeconds());
+
+        //propaga pras outras replicas sem segurar a thread do netty
+        Mono.fromRunnable(() -> redisTemplate.opsForValue()
+                .set(PAUSE_KEY, String.valueOf(until), retryAfter))
+            .subscribeOn(Schedulers.boundedElastic())
+            .doOnError(e -> log.warn("Erro ao propagar pausa de rate limit no Redis: {}", e.getMessage()))
+            .onErrorResume(e -> Mono.empty())
+            .subscribe();
+    }
+
+    private long tryAcquire(Priority priority) {
+        long now = System.currentTimeMillis();
+        if (pausedUntilMillis > now) {
+            return pausedUntilMillis - now;
+        }
+
+        //background so consome enquanto sobra reserva pro trafego interativo
+        double reserve = priority == Priority.BACKGROUND ? capacity * backgroundReserve : 0;
+
+        try {
+            Long waitMillis = redisTemplate.execute(
+                TOKEN_BUCKET_SCRIPT,
+                List.of(BUCKET_KEY, PAUSE_KEY),
+                String.valueOf(capacity),
+                String.valueOf(refillPerMilli),
+                String.valueOf(now),
+                String.valueOf(reserve)
+            );
+            return waitMillis != null ? waitMillis : 0;
+        } catch (Exception e) {
+            log.debug("Redis indisponível para rate limit, usando bucket local: {}", e.getMessage());
+            return localBucket.tryAcquire(now, reserve);
+        }
+    }
+
+    private static class LocalTokenBucket {
+        private final int capacity;
+        private final double refillPerMilli;
+        private double tokens;
+        private long lastRefill;
+
+        LocalTokenBucket(int capacity, double refillPerMilli) {
+            this.capacity = capacity;
+            this.refillPerMilli = refillPerMilli;
+            this.tokens = capacity;
+            this.lastRefill = System.currentTimeMillis();
+        }
+
+        synchronized long tryAcquire(long now, double reserve) {
+            tokens = Math.min(capacity, tokens + Math.max(0, now - lastRefill) * refillPerMilli);
+            lastRefill = now;
+
+            if (tokens - 1 >= reserve) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((reserve + 1 - tokens) / refillPerMilli);
+        }
+    }
+}
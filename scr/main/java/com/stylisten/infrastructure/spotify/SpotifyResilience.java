@@ -0,0 +1,80 @@
+package com.stylisten.infrastructure.spotify;
+
+import com.stylisten.infrastructure.exception.SpotifyApiException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+@Slf4j
+@Component
+public class SpotifyResilience {
+
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Duration latencyBudget;
+
+    public SpotifyResilience(
+        @Value("${spotify.api.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+        @Value("${spotify.api.circuit-breaker.slow-call-threshold-ms:3000}") long slowCallThresholdMs,
+        @Value("${spotify.api.circuit-breaker.window-size:20}") int windowSize,
+        @Value("${spotify.api.circuit-breaker.wait-open-seconds:30}") long waitOpenSeconds,
+        @Value("${spotify.api.bulkhead.max-concurrent:50}") int maxConcurrent,
+        @Value("${spotify.api.latency-budget-ms:5000}") long latencyBudgetMs
+    ) {
+        this.latencyBudget = Duration.ofMillis(latencyBudgetMs);
+
+        this.circuitBreaker = CircuitBreaker.of("spotify", CircuitBreakerConfig.custom()
+            .failureRateThreshold(failureRateThreshold)
+            .slowCallRateThreshold(failureRateThreshold)
+            .slowCallDurationThreshold(Duration.ofMillis(slowCallThresholdMs))
+            .slidingWindowSize(windowSize)
+            .minimumNumberOfCalls(Math.max(1, windowSize / 2))
+            .waitDurationInOpenState(Duration.ofSeconds(waitOpenSeconds))
+            .permittedNumberOfCallsInHalfOpenState(3)
+            //4xx (token invalido, artista inexistente) nao indica Spotify fora; 429 e 5xx sim
+            .recordException(e -> !(e instanceof WebClientResponseException response) ||
+                response.getStatusCode().is5xxServerError() ||
+                response.getStatusCode().value() == 429)
+            .build());
+
+        //sem fila: se lotou, falha rapido em vez de segurar mais conexoes
+        this.bulkhead = Bulkhead.of("spotify", BulkheadConfig.custom()
+            .maxConcurrentCalls(maxConcurrent)
+            .maxWaitDuration(Duration.ZERO)
+            .build());
+
+        this.circuitBreaker.getEventPublisher().onStateTransition(event ->
+            log.warn("Circuit breaker do Spotify: {}", event.getStateTransition()));
+    }
+
+    public <T> Mono<T> protect(Mono<T> request) {
+        return request
+            .timeout(latencyBudget)
+            .transformDeferred(BulkheadOperator.of(bulkhead))
+            .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+            .onErrorMap(CallNotPermittedException.class, e ->
+                new SpotifyApiException("Spotify indisponível (circuit breaker aberto)", e))
+            .onErrorMap(BulkheadFullException.class, e ->
+                new SpotifyApiException("Limite de chamadas simultâneas ao Spotify atingido", e))
+            .onErrorMap(TimeoutException.class, e ->
+                new SpotifyApiException("Spotify excedeu o orçamento de latência", e));
+    }
+
+    //half-open deixa passar chamadas de teste, so aberto bloqueia
+    public boolean isCallPermitted() {
+        return circuitBreaker.getState() != CircuitBreaker.State.OPEN &&
+            circuitBreaker.getState() != CircuitBreaker.State.FORCED_OPEN;
+    }
+}
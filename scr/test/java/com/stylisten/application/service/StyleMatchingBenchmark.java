@@ -0,0 +1,120 @@
+package com.stylisten.application.service;
+
+import com.stylisten.api.dto.*;
+import com.stylisten.domain.repository.GenreRepository;
+import com.stylisten.domain.repository.GenreStyleMappingRepository;
+import org.openjdk.jmh.annotations.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+//soma dos top 5 generos (modo sum) vs cosseno do perfil inteiro (modo cosine), mesmo catalogo.
+//kernel escalar por padrao; o SIMD entra com -Psimd e -jvmArgsAppend --add-modules=jdk.incubator.vector
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class StyleMatchingBenchmark {
+
+    private static final int GENRES = 2000;
+    private static final int GENRES_PER_STYLE = 8;
+    private static final int TOP_GENRES = 5;
+    private static final int LIMIT = 10;
+
+    @Param({"1000", "10000"})
+    private int styles;
+
+    @Param({"60"})
+    private int profileGenres;
+
+    private StyleMatchingIndex index;
+    private Map<String, Double> profile;
+    private List<String> topGenres;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        List<String> genres = new ArrayList<>(GENRES);
+        for (int g = 0; g < GENRES; g++) {
+            genres.add("genre " + g);
+        }
+
+        List<GenreStyleMappingRepository.StyleWeightView> rows = new ArrayList<>(styles * GENRES_PER_STYLE);
+        for (int s = 0; s < styles; s++) {
+            UUID styleId = new UUID(0, s);
+            //generos populares aparecem mais, como num catalogo real
+            for (int i = 0; i < GENRES_PER_STYLE; i++) {
+                String genre = genres.get((int) (GENRES * Math.pow(random.nextDouble(), 2)));
+                rows.add(new Row(styleId, "style " + s, genre, 0.1 + random.nextDouble() * 0.9));
+            }
+        }
+
+        GenreStyleMappingRepository mappingRepository = mock(GenreStyleMappingRepository.class);
+        GenreRepository genreRepository = mock(GenreRepository.class);
+        when(mappingRepository.findAllStyleWeights()).thenReturn(rows);
+        when(genreRepository.findAllAliases()).thenReturn(Collections.emptyList());
+        when(genreRepository.findAllNames()).thenReturn(genres);
+
+        index = new StyleMatchingIndex(mappingRepository, genreRepository);
+        index.rebuild();
+
+        profile = new HashMap<>();
+        for (int i = 0; i < profileGenres; i++) {
+            profile.merge(genres.get((int) (GENRES * Math.pow(random.nextDouble(), 2))),
+                1.0 + random.nextInt(50), Double::sum);
+        }
+        topGenres = profile.entrySet().stream()
+            .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+            .limit(TOP_GENRES)
+            .map(Map.Entry::getKey)
+            .toList();
+    }
+
+    @Benchmark
+    public List<MatchingStyle> sumOfTopGenres() {
+        return index.topMatches(topGenres, LIMIT);
+    }
+
+    @Benchmark
+    public List<MatchingStyle> cosineFullProfile() {
+        return index.topMatchesByCosine(profile, LIMIT);
+    }
+
+    private record Row(UUID styleId, String styleName, String genreName, Double weight)
+        implements GenreStyleMappingRepository.StyleWeightView {
+
+        @Override
+        public UUID getStyleId() {
+            return styleId;
+        }
+
+        @Override
+        public String getStyleName() {
+            return styleName;
+        }
+
+        @Override
+        public String getDescription() {
+            return null;
+        }
+
+        @Override
+        public String[] getTags() {
+            return null;
+        }
+
+        @Override
+        public String getGenreName() {
+            return genreName;
+        }
+
+        @Override
+        public Double getWeight() {
+            return weight;
+        }
+    }
+}
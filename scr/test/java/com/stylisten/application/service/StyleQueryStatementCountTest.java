@@ -0,0 +1,103 @@
+package com.stylisten.application.service;
+
+import com.stylisten.api.dto.*;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+//guarda contra N+1: o numero de statements nao pode crescer com o numero de estilos/mapeamentos
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({StyleService.class, StyleMatchingIndex.class})
+@Testcontainers(disabledWithoutDocker = true)
+//sem a transacao do teste envolvendo tudo: cada chamada abre a sua, como em producao
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StyleQueryStatementCountTest {
+
+    private static final int STYLES = 25;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private StyleService styleService;
+
+    @Autowired
+    private StyleMatchingIndex styleMatchingIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void seedCatalog() {
+        //catalogo maior que o seed do changelog, senao N+1 passaria despercebido
+        if (jdbcTemplate.queryForObject("SELECT count(*) FROM styles WHERE name LIKE 'guard-%'", Integer.class) == 0) {
+            for (int i = 0; i < STYLES; i++) {
+                UUID styleId = UUID.randomUUID();
+                jdbcTemplate.update("INSERT INTO styles (id, name, description, tags) VALUES (?, ?, ?, ?)",
+                    styleId, "guard-" + i, "estilo " + i, new String[]{"tag" + i});
+                jdbcTemplate.update("INSERT INTO genre_style_mapping (id, genre_name, style_id, weight) VALUES (?, ?, ?, ?)",
+                    UUID.randomUUID(), "guard genre", styleId, 0.5);
+                jdbcTemplate.update("INSERT INTO genre_style_mapping (id, genre_name, style_id, weight) VALUES (?, ?, ?, ?)",
+                    UUID.randomUUID(), "guard genre " + (i % 3), styleId, 0.8);
+            }
+        }
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void stylesByGenreIsASingleStatement() {
+        GenreMappingResponse response = styleService.getStylesByGenre("guard genre");
+
+        assertThat(response.getStyles()).hasSize(STYLES);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void matchingIndexRebuildDoesNotLoadStylesOneByOne() {
+        styleMatchingIndex.rebuild();
+
+        //pesos + aliases + nomes de generos, independente do tamanho do catalogo
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void matchingAfterRebuildDoesNotTouchTheDatabase() {
+        styleMatchingIndex.rebuild();
+        statistics.clear();
+
+        List<MatchingStyle> matches = styleMatchingIndex.topMatches(List.of("guard genre", "guard genre 1"), 5);
+
+        assertThat(matches).hasSize(5);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+}
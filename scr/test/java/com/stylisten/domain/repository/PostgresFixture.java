@@ -0,0 +1,64 @@
+package com.stylisten.domain.repository;
+
+import liquibase.integration.spring.SpringLiquibase;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import javax.sql.DataSource;
+import java.util.UUID;
+
+//postgres descartavel com o changelog aplicado, pra benchmarks que precisam do SQL real
+final class PostgresFixture implements AutoCloseable {
+
+    private final PostgreSQLContainer<?> container = new PostgreSQLContainer<>("postgres:16-alpine");
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+
+    PostgresFixture() throws Exception {
+        container.start();
+
+        PGSimpleDataSource pg = new PGSimpleDataSource();
+        pg.setUrl(container.getJdbcUrl() + "&reWriteBatchedInserts=true");
+        pg.setUser(container.getUsername());
+        pg.setPassword(container.getPassword());
+        this.dataSource = pg;
+        this.jdbcTemplate = new JdbcTemplate(pg);
+
+        SpringLiquibase liquibase = new SpringLiquibase();
+        liquibase.setDataSource(pg);
+        liquibase.setChangeLog("classpath:db/changelog/db.changelog-master.xml");
+        liquibase.setResourceLoader(new DefaultResourceLoader());
+        liquibase.afterPropertiesSet();
+    }
+
+    DataSource dataSource() {
+        return dataSource;
+    }
+
+    JdbcTemplate jdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    UUID createUser() {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, email, name) VALUES (?, ?, ?)", id, id + "@bench.local", "bench");
+        return id;
+    }
+
+    //artista com um genero, pra o rollup do INSERT ter trabalho de verdade
+    long createArtist(String spotifyId, String genre) {
+        Long artistId = jdbcTemplate.queryForObject(
+            "INSERT INTO artists (spotify_artist_id, name) VALUES (?, ?) RETURNING id", Long.class, spotifyId, spotifyId);
+        Integer genreId = jdbcTemplate.queryForObject(
+            "INSERT INTO genres (name) VALUES (?) ON CONFLICT (name) DO UPDATE SET name = EXCLUDED.name RETURNING id",
+            Integer.class, genre);
+        jdbcTemplate.update("INSERT INTO artist_genres (artist_id, genre_id) VALUES (?, ?)", artistId, genreId);
+        return artistId;
+    }
+
+    @Override
+    public void close() {
+        container.stop();
+    }
+}
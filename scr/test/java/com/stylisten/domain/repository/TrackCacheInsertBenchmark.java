@@ -0,0 +1,100 @@
+package com.stylisten.domain.repository;
+
+import com.stylisten.domain.entity.*;
+import org.openjdk.jmh.annotations.*;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+//rows/s de um sync de 1000 plays: INSERT por entidade (saveAll sem batching, caminho antigo)
+//vs INSERT multi-linha com unnest vs COPY. precisa de Docker (Testcontainers)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(TrackCacheInsertBenchmark.PLAYS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TrackCacheInsertBenchmark {
+
+    static final int PLAYS = 1000;
+
+    private static final String PER_ROW_SQL =
+        "INSERT INTO tracks_cache (id, spotify_track_id, user_id, played_at, artist_id, track_name, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, now())";
+
+    private PostgresFixture postgres;
+    private TrackCacheRepositoryCustomImpl repository;
+    private UUID userId;
+    private long[] artistIds;
+    private Instant nextPlayedAt = Instant.parse("2024-01-01T00:00:00Z");
+    private List<TrackCache> tracks;
+
+    @Setup(Level.Trial)
+    public void startDatabase() throws Exception {
+        postgres = new PostgresFixture();
+        repository = new TrackCacheRepositoryCustomImpl(postgres.jdbcTemplate(), 14);
+        userId = postgres.createUser();
+
+        artistIds = new long[50];
+        for (int i = 0; i < artistIds.length; i++) {
+            artistIds[i] = postgres.createArtist("bench-artist-" + i, "genre " + (i % 10));
+        }
+    }
+
+    //plays sempre novos: duplicado cairia no ON CONFLICT DO NOTHING e nao mediria nada
+    @Setup(Level.Invocation)
+    public void nextSync() {
+        tracks = new ArrayList<>(PLAYS);
+        for (int i = 0; i < PLAYS; i++) {
+            nextPlayedAt = nextPlayedAt.plusSeconds(180);
+            tracks.add(TrackCache.builder()
+                .spotifyTrackId("track-" + (i % 200))
+                .playedAt(nextPlayedAt)
+                .artist(Artist.builder().id(artistIds[i % artistIds.length]).build())
+                .trackName("Track " + i)
+                .build());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDatabase() {
+        postgres.close();
+    }
+
+    @Benchmark
+    public int perEntityInsert() throws Exception {
+        try (Connection connection = postgres.dataSource().getConnection();
+             PreparedStatement ps = connection.prepareStatement(PER_ROW_SQL)) {
+            connection.setAutoCommit(false);
+            int inserted = 0;
+            for (TrackCache track : tracks) {
+                ps.setObject(1, UUID.randomUUID());
+                ps.setString(2, track.getSpotifyTrackId());
+                ps.setObject(3, userId);
+                ps.setTimestamp(4, Timestamp.from(track.getPlayedAt()));
+                ps.setLong(5, track.getArtist().getId());
+                ps.setString(6, track.getTrackName());
+                inserted += ps.executeUpdate();
+            }
+            connection.commit();
+            return inserted;
+        }
+    }
+
+    //ja inclui o rollup diario e o decay, que o caminho antigo nem fazia
+    @Benchmark
+    public int multiRowInsert() {
+        return repository.insertAllIgnoringDuplicates(userId, tracks);
+    }
+
+    @Benchmark
+    public int copyInsert() {
+        return repository.bulkImport(userId, tracks);
+    }
+}
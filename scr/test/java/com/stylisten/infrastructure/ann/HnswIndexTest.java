@@ -0,0 +1,64 @@
+package com.stylisten.infrastructure.ann;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.*;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 500;
+    private static final int K = 10;
+
+    private final Random random = new Random(7);
+    private Map<UUID, SparseVector> catalog;
+    private HnswIndex index;
+    private List<SparseVector> queries;
+
+    @BeforeEach
+    void buildIndex() {
+        catalog = StyleVectors.catalog(3000, DIMENSIONS, 8, random);
+        index = new HnswIndex(16, 200, new Random(11));
+        catalog.forEach(index::upsert);
+
+        queries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            queries.add(StyleVectors.vector(DIMENSIONS, 40, random));
+        }
+    }
+
+    @Test
+    void recallAgainstExactSearchAtDefaultEf() {
+        assertThat(StyleVectors.recall(index, catalog, queries, K, 100)).isGreaterThanOrEqualTo(0.9);
+    }
+
+    @Test
+    void removedStylesNeverComeBack() {
+        SparseVector query = queries.get(0);
+        UUID best = index.search(query, 1, 100).get(0).key();
+
+        assertThat(index.remove(best)).isTrue();
+
+        assertThat(index.search(query, K, 100)).extracting(HnswIndex.Neighbor::key).doesNotContain(best);
+        assertThat(index.size()).isEqualTo(catalog.size() - 1);
+    }
+
+    @Test
+    void snapshotRoundTripKeepsResults() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            index.writeTo(out);
+        }
+
+        HnswIndex restored;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            restored = HnswIndex.readFrom(in);
+        }
+
+        for (SparseVector query : queries.subList(0, 10)) {
+            assertThat(restored.search(query, K, 100)).isEqualTo(index.search(query, K, 100));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.stylisten.infrastructure.ann;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+//latencia por busca do HNSW em varios efSearch vs busca exata (varre o catalogo todo).
+//o recall@10 de cada configuracao sai no stdout do fork, ao lado da latencia medida
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HnswRecallBenchmark {
+
+    private static final int DIMENSIONS = 5000;
+    private static final int GENRES_PER_STYLE = 8;
+    private static final int K = 10;
+    private static final int QUERIES = 200;
+
+    @Param({"10000", "100000"})
+    private int styles;
+
+    @Param({"20", "50", "100", "200"})
+    private int efSearch;
+
+    private Map<UUID, SparseVector> catalog;
+    private HnswIndex index;
+    private SparseVector[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        catalog = StyleVectors.catalog(styles, DIMENSIONS, GENRES_PER_STYLE, random);
+
+        long start = System.nanoTime();
+        index = new HnswIndex(16, 200, new Random(43));
+        catalog.forEach(index::upsert);
+        long buildMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        queries = new SparseVector[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            //perfil de usuario: bem mais generos que um estilo
+            queries[i] = StyleVectors.vector(DIMENSIONS, 60, random);
+        }
+
+        double recall = StyleVectors.recall(index, catalog, Arrays.asList(queries), K, efSearch);
+        System.out.printf("%nstyles=%d efSearch=%d recall@%d=%.4f build=%dms%n", styles, efSearch, K, recall, buildMs);
+    }
+
+    @Benchmark
+    public List<HnswIndex.Neighbor> hnsw() {
+        return index.search(nextQuery(), K, efSearch);
+    }
+
+    //nao depende de efSearch; rodar com -p efSearch=100 evita repetir a mesma medida
+    @Benchmark
+    public List<UUID> exact() {
+        return StyleVectors.exactTop(catalog, nextQuery(), K);
+    }
+
+    private SparseVector nextQuery() {
+        SparseVector query = queries[next];
+        next = (next + 1) % queries.length;
+        return query;
+    }
+}
@@ -0,0 +1,64 @@
+package com.stylisten.infrastructure.ann;
+
+import java.util.*;
+
+//catalogo sintetico (generos com cauda longa, como o real) e busca exata pra medir recall
+final class StyleVectors {
+
+    private StyleVectors() {
+    }
+
+    static Map<UUID, SparseVector> catalog(int styles, int dimensions, int genresPerStyle, Random random) {
+        Map<UUID, SparseVector> catalog = new LinkedHashMap<>();
+        for (int s = 0; s < styles; s++) {
+            catalog.put(new UUID(0, s), vector(dimensions, genresPerStyle, random));
+        }
+        return catalog;
+    }
+
+    static SparseVector vector(int dimensions, int genres, Random random) {
+        Map<Integer, Float> entries = new HashMap<>();
+        for (int i = 0; i < genres; i++) {
+            entries.merge((int) (dimensions * Math.pow(random.nextDouble(), 2)), 0.1f + random.nextFloat(), Float::sum);
+        }
+        return SparseVector.normalized(entries);
+    }
+
+    static List<UUID> exactTop(Map<UUID, SparseVector> catalog, SparseVector query, int k) {
+        PriorityQueue<Map.Entry<UUID, Float>> heap = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<UUID, SparseVector> entry : catalog.entrySet()) {
+            float similarity = query.dot(entry.getValue());
+            if (similarity <= 0f) {
+                continue;
+            }
+            heap.add(Map.entry(entry.getKey(), similarity));
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+        List<UUID> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            result.add(heap.poll().getKey());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    //fracao do top-k exato que o HNSW devolveu
+    static double recall(HnswIndex index, Map<UUID, SparseVector> catalog, List<SparseVector> queries, int k, int ef) {
+        long found = 0;
+        long expected = 0;
+        for (SparseVector query : queries) {
+            List<UUID> exact = exactTop(catalog, query, k);
+            Set<UUID> approximate = new HashSet<>();
+            index.search(query, k, ef).forEach(neighbor -> approximate.add(neighbor.key()));
+            for (UUID key : exact) {
+                if (approximate.contains(key)) {
+                    found++;
+                }
+            }
+            expected += exact.size();
+        }
+        return expected == 0 ? 1.0 : (double) found / expected;
+    }
+}
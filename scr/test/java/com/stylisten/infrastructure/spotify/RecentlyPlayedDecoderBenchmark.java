@@ -0,0 +1,57 @@
+package com.stylisten.infrastructure.spotify;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stylisten.api.dto.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import java.util.concurrent.TimeUnit;
+
+//arvore de DTOs (caminho antigo, bodyToMono) vs decoder por tokens; rodar com -prof gc pra ver alocacao por pagina
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class RecentlyPlayedDecoderBenchmark {
+
+    @Param({"50"})
+    private int items;
+
+    @Param({"1", "3"})
+    private int artistsPerTrack;
+
+    private byte[] payload;
+    private ObjectMapper objectMapper;
+    private RecentlyPlayedDecoder decoder;
+
+    @Setup
+    public void setup() {
+        payload = RecentlyPlayedPayloads.page(items, artistsPerTrack);
+        //mesma config do WebClient do Spring Boot: campos desconhecidos sao ignorados
+        objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        decoder = new RecentlyPlayedDecoder(objectMapper);
+    }
+
+    @Benchmark
+    public void dtoTree(Blackhole blackhole) throws Exception {
+        SpotifyRecentlyPlayedResponse response = objectMapper.readValue(payload, SpotifyRecentlyPlayedResponse.class);
+        //o sync so lia isso da arvore inteira
+        for (SpotifyPlayHistoryItem item : response.getItems()) {
+            blackhole.consume(item.getTrack().getId());
+            blackhole.consume(item.getTrack().getName());
+            blackhole.consume(item.getPlayedAt());
+            for (SpotifyArtist artist : item.getTrack().getArtists()) {
+                blackhole.consume(artist.getId());
+                blackhole.consume(artist.getName());
+            }
+        }
+    }
+
+    @Benchmark
+    public SpotifyPlayRecordPage streaming() {
+        return decoder.decode(DefaultDataBufferFactory.sharedInstance.wrap(payload));
+    }
+}
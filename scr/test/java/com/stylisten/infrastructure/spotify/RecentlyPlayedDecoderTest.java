@@ -0,0 +1,75 @@
+package com.stylisten.infrastructure.spotify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stylisten.api.dto.*;
+import com.stylisten.infrastructure.exception.SpotifyApiException;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RecentlyPlayedDecoderTest {
+
+    private final RecentlyPlayedDecoder decoder = new RecentlyPlayedDecoder(new ObjectMapper());
+
+    @Test
+    void decodesOnlyTheFieldsTheSyncKeeps() {
+        SpotifyPlayRecordPage page = decoder.decode(buffer(RecentlyPlayedPayloads.page(3, 2)));
+
+        assertThat(page.getItems()).hasSize(3);
+        assertThat(page.getNextUrl()).endsWith("after=1");
+
+        SpotifyPlayRecord first = page.getItems().get(0);
+        assertThat(first.getTrackId()).isEqualTo("t0");
+        assertThat(first.getTrackName()).isEqualTo("Track \"0\"");
+        assertThat(first.getPlayedAt()).isEqualTo(Instant.parse("2024-01-01T00:00:00Z"));
+        //artistas do album ficam de fora; principal primeiro
+        assertThat(first.getArtistIds()).containsExactly("a0_0", "a0_1");
+        assertThat(first.getArtistName()).isEqualTo("Artist a0_0");
+        assertThat(first.getArtistNamesById()).containsEntry("a0_1", "Artist a0_1");
+        assertThat(first.getArtistGenres()).isEmpty();
+    }
+
+    @Test
+    void skipsNullElementsInsideArrays() {
+        String json = "{\"items\":[null,{\"played_at\":\"2024-01-01T00:00:00Z\",\"track\":{\"id\":\"t1\"," +
+            "\"name\":\"x\",\"artists\":[null,{\"id\":\"a1\",\"name\":\"A\"," +
+            "\"genres\":[\"rock\",null,\"indie rock\",{\"bad\":1}],\"popularity\":10}]}}],\"next\":null}";
+
+        SpotifyPlayRecordPage page = decoder.decode(buffer(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(page.getItems()).hasSize(1);
+        assertThat(page.getNextUrl()).isNull();
+        SpotifyPlayRecord record = page.getItems().get(0);
+        assertThat(record.getArtistIds()).containsExactly("a1");
+        assertThat(record.getArtistGenres()).containsEntry("a1", List.of("rock", "indie rock"));
+    }
+
+    @Test
+    void dropsItemsWithoutTrackId() {
+        String json = "{\"items\":[{\"played_at\":\"2024-01-01T00:00:00Z\",\"track\":{\"id\":null," +
+            "\"name\":\"local\",\"artists\":[{\"id\":null,\"name\":\"A\"}]}}],\"next\":null}";
+
+        assertThat(decoder.decode(buffer(json.getBytes(StandardCharsets.UTF_8))).getItems()).isEmpty();
+    }
+
+    @Test
+    void rejectsTruncatedPayload() {
+        byte[] full = RecentlyPlayedPayloads.page(2, 1);
+        byte[] truncated = new String(full, StandardCharsets.UTF_8)
+            .substring(0, full.length / 2)
+            .getBytes(StandardCharsets.UTF_8);
+
+        assertThatThrownBy(() -> decoder.decode(buffer(truncated)))
+            .isInstanceOf(SpotifyApiException.class);
+    }
+
+    private static DataBuffer buffer(byte[] bytes) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(bytes);
+    }
+}
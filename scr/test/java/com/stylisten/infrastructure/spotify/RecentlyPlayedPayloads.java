@@ -0,0 +1,53 @@
+package com.stylisten.infrastructure.spotify;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+//payload no formato real do recently-played (album, imagens, urls...), pra teste e benchmark
+final class RecentlyPlayedPayloads {
+
+    private RecentlyPlayedPayloads() {
+    }
+
+    static byte[] page(int items, int artistsPerTrack) {
+        StringBuilder json = new StringBuilder("{\"items\":[");
+        Instant playedAt = Instant.parse("2024-01-01T00:00:00Z");
+
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"track\":{")
+                .append("\"album\":{\"album_type\":\"album\",\"artists\":[").append(artist(i, 0)).append("],")
+                .append("\"images\":[")
+                .append("{\"height\":640,\"url\":\"https://i.scdn.co/image/").append(i).append("-640\",\"width\":640},")
+                .append("{\"height\":300,\"url\":\"https://i.scdn.co/image/").append(i).append("-300\",\"width\":300}],")
+                .append("\"name\":\"Album ").append(i).append("\",\"release_date\":\"2020-01-01\"},")
+                .append("\"artists\":[");
+            for (int a = 0; a < artistsPerTrack; a++) {
+                if (a > 0) {
+                    json.append(',');
+                }
+                json.append(artist(i, a));
+            }
+            json.append("],")
+                .append("\"duration_ms\":215000,\"explicit\":false,")
+                .append("\"external_urls\":{\"spotify\":\"https://open.spotify.com/track/t").append(i).append("\"},")
+                .append("\"id\":\"t").append(i).append("\",")
+                .append("\"name\":\"Track \\\"").append(i).append("\\\"\",")
+                .append("\"popularity\":42,\"type\":\"track\"},")
+                .append("\"played_at\":\"").append(playedAt.plusSeconds(240L * i)).append("\",")
+                .append("\"context\":null}");
+        }
+
+        json.append("],\"next\":\"https://api.spotify.com/v1/me/player/recently-played?after=1\",")
+            .append("\"cursors\":{\"after\":\"1\",\"before\":\"0\"},\"limit\":").append(items).append('}');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String artist(int track, int index) {
+        String id = "a" + (track % 20) + "_" + index;
+        return "{\"external_urls\":{\"spotify\":\"https://open.spotify.com/artist/" + id + "\"}," +
+            "\"id\":\"" + id + "\",\"name\":\"Artist " + id + "\",\"type\":\"artist\"}";
+    }
+}